@@ -8,8 +8,9 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * The REST API Endpoint Service to provide Blog Posts.
- * This service caches constant request results in internal cache implemented with ConcurrentHashMap
- * The Cache updates every 1 hour in the background.
+ * This service caches the posts of every tag in a bounded Caffeine cache
+ * The cached tags expire one by one an hour after they were fetched.
+ * With "spring.threads.virtual.enabled=true" the requests are handled on virtual threads.
  * To ping the service: http://localhost:8080/ping
  * To get the organized posts:
  * http://localhost:8080/api/posts?tags=history,tech&sortBy=likes&direction=desc
@@ -0,0 +1,87 @@
+package com.assessment.blogposts.config;
+
+import com.assessment.blogposts.model.TagPosts;
+import com.assessment.blogposts.service.HatchApiClient;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+
+/**
+ * The configuration of the Caffeine cache backend used when "spring.cache.type" is "caffeine".
+ * The cache is bounded by the total number of cached posts and evicts with W-TinyLFU,
+ * every entry expires on its own "hatchways.cache.expire-after-write" after it is written,
+ * except a tag restored from the snapshot, which expires that long after it was fetched, see TagPostsSnapshotService.
+ * An entry older than "hatchways.cache.refresh-after-write" is still served while a single
+ * background task fetches the tag again, so a popular tag never waits for the external api.
+ * A refreshed tag is built from its cached posts, so only the posts which changed are sorted again.
+ * The hit, miss and eviction counters are recorded for the cache statistics.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public Caffeine<Object, Object> caffeine(HatchwaysProperties hatchwaysProperties,
+                                             @Qualifier("applicationTaskExecutor") Executor refreshExecutor) {
+        HatchwaysProperties.Cache cache = hatchwaysProperties.getCache();
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder()
+                .maximumWeight(cache.getMaximumPosts())
+                .weigher(CacheConfig::weigh)
+                .expireAfter(expireAfterWrite(cache.getExpireAfterWrite()))
+                .executor(refreshExecutor)
+                .recordStats();
+        if (cache.getRefreshAfterWrite() != null) caffeine.refreshAfterWrite(cache.getRefreshAfterWrite());
+        return caffeine;
+    }
+
+    //The loader used by the cache to fetch a missing tag and to refresh a stale one from its cached posts
+    @Bean
+    public CacheLoader<Object, Object> tagPostsLoader(@Lazy HatchApiClient hatchApiClient) {
+        return new CacheLoader<>() {
+            @Override
+            public Object load(Object tag) {
+                return hatchApiClient.fetchPostsByTag((String) tag);
+            }
+
+            @Override
+            public Object reload(Object tag, Object oldValue) {
+                return hatchApiClient.fetchPostsByTag((String) tag, oldValue instanceof TagPosts ? (TagPosts) oldValue : null);
+            }
+        };
+    }
+
+    //To expire an entry after the duration from its last write, its expiry is variable so a restored tag can be put
+    //with the life it has left
+    static Expiry<Object, Object> expireAfterWrite(Duration duration) {
+        long nanos = duration.toNanos();
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(Object key, Object value, long currentTime) {
+                return nanos;
+            }
+
+            @Override
+            public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                return nanos;
+            }
+
+            @Override
+            public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    //To weigh a cache entry by the number of posts it holds
+    static int weigh(Object key, Object value) {
+        if (value instanceof TagPosts) return Math.max(1, ((TagPosts) value).size());
+        return 1;
+    }
+}
@@ -0,0 +1,110 @@
+package com.assessment.blogposts.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+
+/**
+ * The settings of the external hatchways api, bound from the "hatchways.*" application properties.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "hatchways")
+public class HatchwaysProperties {
+    //The endpoint of the posts, the tag is appended as the "tag" query parameter
+    private String baseUrl = "https://api.hatchways.io/assessment/blog/posts";
+    //The largest response of one tag the reactive client is allowed to buffer
+    private DataSize maxResponseSize = DataSize.ofMegabytes(16);
+    //The overall deadline for fetching all the tags of one request
+    private Duration fetchTimeout = Duration.ofSeconds(5);
+    //The most queries of one POST /api/posts/batch request
+    private int maxBatchQueries = 100;
+    private Cache cache = new Cache();
+    private Client client = new Client();
+    private Resilience resilience = new Resilience();
+    private Metrics metrics = new Metrics();
+    private Snapshot snapshot = new Snapshot();
+
+    @Getter
+    @Setter
+    public static class Cache {
+        //The maximum number of posts held by all the cached tags together
+        private long maximumPosts = 100_000;
+        //The time after which a cached tag expires and is fetched again
+        private Duration expireAfterWrite = Duration.ofHours(1);
+        //The age after which a cached tag is refreshed in the background while still being served
+        private Duration refreshAfterWrite = Duration.ofMinutes(10);
+        //The maximum size of the encoded responses of /api/posts held together, 0 to not keep any
+        private DataSize maximumResponseSize = DataSize.ofMegabytes(64);
+        //"true" keeps the posts of the cached tags in direct buffers outside the heap, so the heap stays small
+        //however many posts are cached, the direct memory is limited by "-XX:MaxDirectMemorySize"
+        private boolean offHeap = false;
+    }
+
+    @Getter
+    @Setter
+    public static class Client {
+        //"true" uses the JDK HttpClient, which negotiates HTTP/2 and multiplexes the fetches over one connection,
+        //"false" uses the pooled Apache HttpClient over HTTP/1.1 keep-alive connections
+        private boolean http2 = false;
+        //The time to open a connection to the external api
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        //The longest wait for the response, also between two reads of the body,
+        //a call is only retried when one more attempt of this long ends within "hatchways.fetch-timeout"
+        private Duration readTimeout = Duration.ofSeconds(2);
+        //The longest wait for a free pooled connection
+        private Duration poolTimeout = Duration.ofSeconds(2);
+        //The maximum number of pooled connections, in total and to one host
+        private int maxConnections = 64;
+        private int maxConnectionsPerRoute = 32;
+        //The idle pooled connections are closed after this time, every connection after time-to-live
+        private Duration idleTimeout = Duration.ofSeconds(30);
+        private Duration timeToLive = Duration.ofMinutes(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Resilience {
+        //The circuit opens when this percentage of the last "sliding-window-size" calls failed,
+        //once at least "minimum-calls" were made, and stays open for "open-duration"
+        private float failureRateThreshold = 50;
+        private int slidingWindowSize = 20;
+        private int minimumCalls = 10;
+        private Duration openDuration = Duration.ofSeconds(10);
+        //The maximum number of calls to the external api at once, and the longest wait for a free one,
+        //kept below "spring.task.execution.pool.core-size" so calls to a slow api never take every fetch thread
+        private int maxConcurrentCalls = 6;
+        private Duration maxWait = Duration.ofMillis(100);
+        //The attempts of one call, the first retry waits "retry-backoff" with random jitter, doubling afterwards
+        private int maxAttempts = 3;
+        private Duration retryBackoff = Duration.ofMillis(100);
+        //The retries are limited to this share of the calls, with at most "retry-burst" retries saved up
+        private double retryBudgetRatio = 0.1;
+        private int retryBurst = 10;
+    }
+
+    @Getter
+    @Setter
+    public static class Metrics {
+        //The maximum number of tags timed apart in "blogposts.upstream.requests", the calls of other tags are not timed
+        private int maxTags = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class Snapshot {
+        //The file the cached tags are saved to and restored from at startup, no snapshot when not set
+        private String path;
+        //The time between two saves, the tags are saved at shutdown as well
+        private Duration interval = Duration.ofMinutes(5);
+        //The tags fetched longer ago than this are not restored, "hatchways.cache.expire-after-write" when not set,
+        //a restored tag still expires "hatchways.cache.expire-after-write" after it was fetched
+        private Duration maxAge;
+    }
+}
@@ -0,0 +1,109 @@
+package com.assessment.blogposts.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+
+/**
+ * The configuration of the http client of the external api, applied to the RestTemplate of HatchApiClient.
+ * By default a pooled Apache HttpClient keeps the connections alive between the fetches, bounded in total
+ * and per host, asks for gzip compressed responses and gives up on a slow connect, lease or read.
+ * The pool is reported through the "httpcomponents.httpclient.pool.*" metrics.
+ * With "hatchways.client.http2" the JDK HttpClient is used instead, which negotiates HTTP/2
+ * and multiplexes the concurrent fetches over a single connection.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "hatchways.client.http2", havingValue = "false", matchIfMissing = true)
+    public PoolingHttpClientConnectionManager hatchwaysConnectionManager(HatchwaysProperties hatchwaysProperties) {
+        HatchwaysProperties.Client client = hatchwaysProperties.getClient();
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(client.getMaxConnections())
+                .setMaxConnPerRoute(client.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(timeout(client.getConnectTimeout()))
+                        .setSocketTimeout(timeout(client.getReadTimeout()))
+                        .setTimeToLive(TimeValue.ofMilliseconds(client.getTimeToLive().toMillis()))
+                        .build())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "hatchways.client.http2", havingValue = "false", matchIfMissing = true)
+    public MeterBinder hatchwaysConnectionPoolMetrics(PoolingHttpClientConnectionManager hatchwaysConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(hatchwaysConnectionManager, "hatchways");
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "hatchways.client.http2", havingValue = "false", matchIfMissing = true)
+    public ClientHttpRequestFactory hatchwaysRequestFactory(PoolingHttpClientConnectionManager hatchwaysConnectionManager,
+                                                            HatchwaysProperties hatchwaysProperties) {
+        HatchwaysProperties.Client client = hatchwaysProperties.getClient();
+        //The content compression of HttpClient sends "Accept-Encoding" and decompresses the body
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(hatchwaysConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(timeout(client.getPoolTimeout()))
+                        .setResponseTimeout(timeout(client.getReadTimeout()))
+                        .build())
+                .evictIdleConnections(TimeValue.ofMilliseconds(client.getIdleTimeout().toMillis()))
+                .evictExpiredConnections()
+                //The retries are made by HatchApiClient within its retry budget
+                .disableAutomaticRetries()
+                .build();
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    @Bean(name = "hatchwaysRequestFactory")
+    @ConditionalOnProperty(name = "hatchways.client.http2", havingValue = "true")
+    public ClientHttpRequestFactory hatchwaysHttp2RequestFactory(HatchwaysProperties hatchwaysProperties) {
+        HatchwaysProperties.Client client = hatchwaysProperties.getClient();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(client.getConnectTimeout())
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(client.getReadTimeout());
+        return requestFactory;
+    }
+
+    //To use the client for the RestTemplate built by HatchApiClient, the JDK client needs to ask for gzip itself
+    @Bean
+    public RestTemplateCustomizer hatchwaysRestTemplateCustomizer(ClientHttpRequestFactory hatchwaysRequestFactory,
+                                                                  HatchwaysProperties hatchwaysProperties) {
+        return restTemplate -> {
+            restTemplate.setRequestFactory(hatchwaysRequestFactory);
+            if (hatchwaysProperties.getClient().isHttp2()) {
+                restTemplate.getInterceptors().add((request, body, execution) -> {
+                    request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+                    return execution.execute(request, body);
+                });
+            }
+        };
+    }
+
+    private static Timeout timeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+}
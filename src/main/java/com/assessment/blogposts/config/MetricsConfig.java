@@ -0,0 +1,60 @@
+package com.assessment.blogposts.config;
+
+import com.assessment.blogposts.service.HatchDataService;
+import com.assessment.blogposts.util.PostsMetrics;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+
+/**
+ * The configuration of the meters of the request hot path, see PostsMetrics.
+ * The tags of a request are chosen by the client, so the tags timed apart in
+ * "blogposts.upstream.requests" are limited to "hatchways.metrics.max-tags", the others are dropped.
+ * The upstream calls, the merge and the writing of the responses publish percentile histograms,
+ * so their percentiles can be aggregated across instances.
+ * The cache statistics of "TagPostsCache" are published by Spring Boot as the "cache.*" metrics,
+ * and the ones of "EncodedPostsCache", built apart from the CacheManager, are bound once here.
+ */
+@Configuration
+public class MetricsConfig {
+    private static final Set<String> HISTOGRAM_METERS =
+            Set.of(PostsMetrics.UPSTREAM_REQUESTS, PostsMetrics.MERGE, PostsMetrics.SERIALIZE);
+
+    @Bean
+    public PostsMetrics postsMetrics(MeterRegistry meterRegistry) {
+        return new PostsMetrics(meterRegistry);
+    }
+
+    @Bean
+    public MeterFilter upstreamTagsFilter(HatchwaysProperties hatchwaysProperties) {
+        return MeterFilter.maximumAllowableTags(PostsMetrics.UPSTREAM_REQUESTS, PostsMetrics.TAG,
+                hatchwaysProperties.getMetrics().getMaxTags(), MeterFilter.deny());
+    }
+
+    //To publish the percentile histograms of the timers of the hot path
+    @Bean
+    public MeterFilter histogramsFilter() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!HISTOGRAM_METERS.contains(id.getName())) return config;
+                return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+            }
+        };
+    }
+
+    //To publish the hit, miss and eviction counts of the encoded responses cached by HatchDataService
+    @Bean
+    public MeterBinder encodedPostsCacheMetrics(HatchDataService hatchDataService) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, hatchDataService.getResponseCache(),
+                HatchDataService.ENCODED_POSTS_CACHE);
+    }
+}
@@ -1,23 +1,42 @@
 package com.assessment.blogposts.controller;
 
+import com.assessment.blogposts.model.BatchQuery;
+import com.assessment.blogposts.model.EncodedPosts;
 import com.assessment.blogposts.model.PingResponse;
-import com.assessment.blogposts.model.PostsList;
 import com.assessment.blogposts.service.HatchDataService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.List;
+
 
 
 /**
  * The Rest Controller specifies the RESTful endpoint for the Blog Posts service.
  * The controller also maps method to the RESTful action specified.
+ * It is used unless "blogposts.mode" is "reactive", see ReactivePostController.
+ * The streamed responses are written on the request thread while the posts are merged,
+ * rather than returning a StreamingResponseBody, which would take a thread of the fetch executor.
  */
 @RestController
 @RequestMapping("/api")
+@ConditionalOnProperty(name = "blogposts.mode", havingValue = "mvc", matchIfMissing = true)
 public class PostController {
+    private static final String GZIP = "gzip";
     private HatchDataService hatchDataService;
     private static final Logger logger = LoggerFactory.getLogger(PostController.class);
 
@@ -33,11 +52,122 @@ public class PostController {
         return pingResponse;
     }
 
+    //To answer with the cached encoded JSON, gzip compressed when the client accepts it,
+    //a request with a matching "If-None-Match" gets 304 Not Modified without a body
     @GetMapping("/posts")
-    public PostsList getPosts(@RequestParam String tags,
-                              @RequestParam(defaultValue = "id") String sortBy,
-                              @RequestParam(defaultValue = "asc") String direction) {
-        logger.info("Get posts is called.");
-        return hatchDataService.getPosts(tags, sortBy, direction);
+    public ResponseEntity<byte[]> getPosts(@RequestParam String tags,
+                                           @RequestParam(defaultValue = "id") String sortBy,
+                                           @RequestParam(defaultValue = "asc") String direction,
+                                           @RequestParam(defaultValue = "0") int offset,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        logger.debug("Get posts is called.");
+        EncodedPosts posts = hatchDataService.getEncodedPosts(tags, sortBy, direction, offset, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (posts.getGzip() != null && acceptsGzip(acceptEncoding)) {
+            return response.eTag(posts.getGzipEtag()).header(HttpHeaders.CONTENT_ENCODING, GZIP).body(posts.getGzip());
+        }
+        return response.eTag(posts.getEtag()).body(posts.getJson());
+    }
+
+    //To stream the posts as newline delimited JSON when the client accepts "application/x-ndjson"
+    @GetMapping(value = "/posts", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void getPostsNdjson(@RequestParam String tags,
+                               @RequestParam(defaultValue = "id") String sortBy,
+                               @RequestParam(defaultValue = "asc") String direction,
+                               @RequestParam(defaultValue = "0") int offset,
+                               @RequestParam(required = false) Integer limit,
+                               HttpServletResponse response) throws IOException {
+        logger.debug("Get posts as ndjson is called.");
+        StreamingResponseBody body = hatchDataService.streamPosts(tags, sortBy, direction, offset, limit, true);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        body.writeTo(response.getOutputStream());
+    }
+
+    //To stream the same JSON object as getPosts with "stream=true", writing every post as soon as it is merged
+    @GetMapping(value = "/posts", params = "stream=true")
+    public void getPostsStream(@RequestParam String tags,
+                               @RequestParam(defaultValue = "id") String sortBy,
+                               @RequestParam(defaultValue = "asc") String direction,
+                               @RequestParam(defaultValue = "0") int offset,
+                               @RequestParam(required = false) Integer limit,
+                               HttpServletResponse response) throws IOException {
+        logger.debug("Get posts as stream is called.");
+        StreamingResponseBody body = hatchDataService.streamPosts(tags, sortBy, direction, offset, limit, false);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        body.writeTo(response.getOutputStream());
+    }
+
+    //To answer a JSON array of queries of /api/posts at once, {"results": [...]} with the result of every query in order
+    @PostMapping("/posts/batch")
+    public ResponseEntity<byte[]> getPostsBatch(@RequestBody List<BatchQuery> queries) {
+        logger.debug("Get posts batch is called.");
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(hatchDataService.getBatch(queries));
+    }
+
+    //To stream the result of every query of the batch as one line of newline delimited JSON, as soon as it is ready
+    @PostMapping(value = "/posts/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void getPostsBatchNdjson(@RequestBody List<BatchQuery> queries, HttpServletResponse response) throws IOException {
+        logger.debug("Get posts batch as ndjson is called.");
+        StreamingResponseBody body = hatchDataService.streamBatch(queries, true);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        body.writeTo(response.getOutputStream());
+    }
+
+    //To stream the same JSON object as getPostsBatch with "stream=true", writing every result as soon as it is ready
+    @PostMapping(value = "/posts/batch", params = "stream=true")
+    public void getPostsBatchStream(@RequestBody List<BatchQuery> queries, HttpServletResponse response) throws IOException {
+        logger.debug("Get posts batch as stream is called.");
+        StreamingResponseBody body = hatchDataService.streamBatch(queries, false);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        body.writeTo(response.getOutputStream());
+    }
+
+    //To check the "Accept-Encoding" header allows gzip, which is not the case for "gzip;q=0".
+    //The header is scanned in place with indexOf, nothing is split or matched against a regex.
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        int start = 0;
+        while (start <= acceptEncoding.length()) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end < 0) end = acceptEncoding.length();
+            int params = acceptEncoding.indexOf(';', start);
+            int nameEnd = params < 0 || params > end ? end : params;
+            if ((isToken(acceptEncoding, start, nameEnd, GZIP) || isToken(acceptEncoding, start, nameEnd, "*"))
+                    && quality(acceptEncoding, nameEnd, end) > 0) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    //To check the header between "from" and "to", without the spaces around it, is the token ignoring case
+    private static boolean isToken(String header, int from, int to, String token) {
+        while (from < to && Character.isWhitespace(header.charAt(from))) from++;
+        while (to > from && Character.isWhitespace(header.charAt(to - 1))) to--;
+        return to - from == token.length() && header.regionMatches(true, from, token, 0, token.length());
+    }
+
+    //To get the "q" parameter of a coding from its ";" separated parameters between "from" and "to",
+    //a missing or unreadable "q" is 1 so the coding stays acceptable
+    private static double quality(String header, int from, int to) {
+        while (from < to) {
+            int end = header.indexOf(';', from + 1);
+            if (end < 0 || end > to) end = to;
+            int name = from + 1;
+            while (name < end && Character.isWhitespace(header.charAt(name))) name++;
+            if (end - name >= 2 && header.regionMatches(true, name, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(header.substring(name + 2, end).trim());
+                } catch (NumberFormatException e) {
+                    return 1;
+                }
+            }
+            from = end;
+        }
+        return 1;
     }
 }
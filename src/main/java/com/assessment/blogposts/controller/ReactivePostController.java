@@ -0,0 +1,49 @@
+package com.assessment.blogposts.controller;
+
+import com.assessment.blogposts.model.PingResponse;
+import com.assessment.blogposts.model.PostsList;
+import com.assessment.blogposts.service.ReactiveHatchDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * The Rest Controller of the Blog Posts service when "blogposts.mode" is "reactive".
+ * It maps the same RESTful endpoints as PostController, but the posts are returned as a Mono,
+ * so the request thread is released while the tags are fetched.
+ */
+@RestController
+@RequestMapping("/api")
+@ConditionalOnProperty(name = "blogposts.mode", havingValue = "reactive")
+public class ReactivePostController {
+    private ReactiveHatchDataService reactiveHatchDataService;
+    private static final Logger logger = LoggerFactory.getLogger(ReactivePostController.class);
+
+    public ReactivePostController(ReactiveHatchDataService reactiveHatchDataService) {
+        this.reactiveHatchDataService = reactiveHatchDataService;
+    }
+
+    @GetMapping("/ping")
+    public PingResponse getPingResult() {
+        PingResponse pingResponse = new PingResponse();
+        pingResponse.setSuccess(true);
+
+        return pingResponse;
+    }
+
+    @GetMapping("/posts")
+    public Mono<PostsList> getPosts(@RequestParam String tags,
+                                    @RequestParam(defaultValue = "id") String sortBy,
+                                    @RequestParam(defaultValue = "asc") String direction,
+                                    @RequestParam(defaultValue = "0") int offset,
+                                    @RequestParam(required = false) Integer limit) {
+        logger.debug("Get posts is called.");
+        return reactiveHatchDataService.getPosts(tags, sortBy, direction, offset, limit);
+    }
+}
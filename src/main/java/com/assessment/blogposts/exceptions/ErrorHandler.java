@@ -1,8 +1,12 @@
 package com.assessment.blogposts.exceptions;
 
+import org.springframework.beans.TypeMismatchException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -11,19 +15,53 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 
 @ControllerAdvice
 public class ErrorHandler extends ResponseEntityExceptionHandler {
+    private static final String BODY_ERROR = "request body is invalid";
 
     @ExceptionHandler(value = {InvalidParameterException.class})
-    public ResponseEntity<ErrorResponse> handleInvalidParameterException (Exception ex, WebRequest request) {
-        ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setError(ex.getMessage());
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    public ResponseEntity<Object> handleInvalidParameterException (Exception ex, WebRequest request) {
+        return errorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(value = {UpstreamTimeoutException.class})
+    public ResponseEntity<Object> handleUpstreamTimeoutException (Exception ex, WebRequest request) {
+        return errorResponse(ex.getMessage(), HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @ExceptionHandler(value = {UpstreamUnavailableException.class})
+    public ResponseEntity<Object> handleUpstreamUnavailableException (Exception ex, WebRequest request) {
+        return errorResponse(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
     }
 
     @Override
     protected ResponseEntity<Object> handleMissingServletRequestParameter
-            (MissingServletRequestParameterException ex, HttpHeaders headers, HttpStatus status, WebRequest request) {
+            (MissingServletRequestParameterException ex, HttpHeaders headers, HttpStatusCode status, WebRequest request) {
+        return errorResponse(ex.getParameterName() + " parameter is required", HttpStatus.BAD_REQUEST);
+    }
+
+    @Override
+    protected ResponseEntity<Object> handleTypeMismatch
+            (TypeMismatchException ex, HttpHeaders headers, HttpStatusCode status, WebRequest request) {
+        return errorResponse(ex.getPropertyName() + " parameter is invalid", HttpStatus.BAD_REQUEST);
+    }
+
+    @Override
+    protected ResponseEntity<Object> handleHttpMessageNotReadable
+            (HttpMessageNotReadableException ex, HttpHeaders headers, HttpStatusCode status, WebRequest request) {
+        return errorResponse(BODY_ERROR, HttpStatus.BAD_REQUEST);
+    }
+
+    //The status answered for an error, also used for the failed queries of a batch
+    public static HttpStatus statusOf(Throwable ex) {
+        if (ex instanceof InvalidParameterException) return HttpStatus.BAD_REQUEST;
+        if (ex instanceof UpstreamTimeoutException) return HttpStatus.GATEWAY_TIMEOUT;
+        if (ex instanceof UpstreamUnavailableException) return HttpStatus.SERVICE_UNAVAILABLE;
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    //To build the error body, always as JSON, also for a request which accepts only "application/x-ndjson"
+    private ResponseEntity<Object> errorResponse(String error, HttpStatus status) {
         ErrorResponse errorResponse = new ErrorResponse();
-        errorResponse.setError(ex.getParameterName() + " parameter is required");
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+        errorResponse.setError(error);
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
     }
 }
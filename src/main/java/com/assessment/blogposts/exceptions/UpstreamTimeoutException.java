@@ -0,0 +1,12 @@
+package com.assessment.blogposts.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+public class UpstreamTimeoutException extends RuntimeException{
+    private static final long serialVersionUID = 1L;
+    public UpstreamTimeoutException(String errorMessage) {
+        super(errorMessage);
+    }
+}
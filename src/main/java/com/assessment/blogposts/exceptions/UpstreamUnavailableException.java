@@ -0,0 +1,12 @@
+package com.assessment.blogposts.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class UpstreamUnavailableException extends RuntimeException{
+    private static final long serialVersionUID = 1L;
+    public UpstreamUnavailableException(String errorMessage, Throwable cause) {
+        super(errorMessage, cause);
+    }
+}
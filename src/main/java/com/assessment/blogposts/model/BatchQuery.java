@@ -0,0 +1,32 @@
+package com.assessment.blogposts.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * One query of a POST /api/posts/batch request, the parameters of GET /api/posts as a JSON object,
+ * {"tags": "tech,history", "sortBy": "likes", "direction": "desc", "offset": 0, "limit": 10}.
+ * The missing parameters have the same defaults as in GET /api/posts.
+ */
+@Getter
+@Setter
+public class BatchQuery {
+    private String tags;
+    private String sortBy = "id";
+    private String direction = "asc";
+    private int offset;
+    //The maximum number of posts, null for all the posts after the offset
+    private Integer limit;
+
+    public BatchQuery() {
+    }
+
+    public BatchQuery(String tags, String sortBy, String direction, int offset, Integer limit) {
+        this.tags = tags;
+        this.sortBy = sortBy;
+        this.direction = direction;
+        this.offset = offset;
+        this.limit = limit;
+    }
+}
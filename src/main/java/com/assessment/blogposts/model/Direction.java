@@ -0,0 +1,32 @@
+package com.assessment.blogposts.model;
+
+
+/**
+ * The directions the posts can be sorted in, named as in the "direction" parameter.
+ */
+public enum Direction {
+    ASC("asc"),
+    DESC("desc");
+
+    private final String param;
+
+    Direction(String param) {
+        this.param = param;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public boolean isAscending() {
+        return this == ASC;
+    }
+
+    //To get the direction named by the "direction" parameter, or null if there is no such direction
+    public static Direction fromParam(String direction) {
+        for (Direction value : values()) {
+            if (value.param.equals(direction)) return value;
+        }
+        return null;
+    }
+}
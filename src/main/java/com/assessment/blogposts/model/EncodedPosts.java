@@ -0,0 +1,58 @@
+package com.assessment.blogposts.model;
+
+import lombok.Getter;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * A response of /api/posts encoded once and kept in the response cache, the JSON bytes,
+ * the gzip compressed bytes when the JSON is large enough to be worth it, a strong ETag of each
+ * and the number of posts encoded.
+ * The arrays are shared by every response served from the cache, so they must not be modified.
+ */
+@Getter
+public class EncodedPosts {
+    //The JSON smaller than this is not compressed, gzip would save little or nothing
+    public static final int GZIP_MIN_SIZE = 1024;
+
+    private final byte[] json;
+    private final byte[] gzip;
+    private final String etag;
+    private final String gzipEtag;
+    private final int postCount;
+
+    private EncodedPosts(byte[] json, byte[] gzip, String etag, String gzipEtag, int postCount) {
+        this.json = json;
+        this.gzip = gzip;
+        this.etag = etag;
+        this.gzipEtag = gzipEtag;
+        this.postCount = postCount;
+    }
+
+    //To wrap the JSON of a response holding "postCount" posts, compressing it if it is large enough
+    public static EncodedPosts of(byte[] json, int postCount) {
+        String hash = DigestUtils.md5DigestAsHex(json);
+        if (json.length < GZIP_MIN_SIZE) return new EncodedPosts(json, null, "\"" + hash + "\"", null, postCount);
+        return new EncodedPosts(json, gzip(json), "\"" + hash + "\"", "\"" + hash + "-gzip\"", postCount);
+    }
+
+    //The number of bytes held, used to weigh the entry in the response cache
+    public int size() {
+        return json.length + (gzip == null ? 0 : gzip.length);
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
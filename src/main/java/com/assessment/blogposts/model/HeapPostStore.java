@@ -0,0 +1,207 @@
+package com.assessment.blogposts.model;
+
+import com.assessment.blogposts.util.IndexSorter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * The posts of a tag in primitive arrays on the heap, one array per field, while the tag is built.
+ * The JSON of the posts is encoded and the orders are sorted once, then the posts are moved
+ * to the PostTable shared by the tags, or out of the heap, see SharedPostStore and OffHeapPostStore.
+ * When the tag is refreshed, the orders are updated from the orders of the previous posts of the tag
+ * instead of sorted again, see updateOrders().
+ */
+class HeapPostStore extends PostStore {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().setRootValueSeparator(null);
+
+    private final long[] ids;
+    private final String[] authors;
+    private final long[] authorIds;
+    private final long[] likes;
+    private final float[] popularity;
+    private final long[] reads;
+    private final List<String>[] tags;
+    //The JSON of every post one after another, the post at index i is from jsonOffsets[i] to jsonOffsets[i + 1]
+    private final byte[] json;
+    private final int[] jsonOffsets;
+    private final int[][] orders;
+
+    HeapPostStore(int size, long[] ids, String[] authors, long[] authorIds, long[] likes, float[] popularity,
+                  long[] reads, List<String>[] tags, PostStore previous) {
+        this.ids = Arrays.copyOf(ids, size);
+        this.authors = Arrays.copyOf(authors, size);
+        this.authorIds = Arrays.copyOf(authorIds, size);
+        this.likes = Arrays.copyOf(likes, size);
+        this.popularity = Arrays.copyOf(popularity, size);
+        this.reads = Arrays.copyOf(reads, size);
+        this.tags = Arrays.copyOf(tags, size);
+        this.jsonOffsets = new int[size + 1];
+        this.json = encodeJson();
+
+        this.orders = previous == null ? sortOrders() : updateOrders(previous);
+    }
+
+    @Override
+    int size() {
+        return ids.length;
+    }
+
+    @Override
+    long getId(int index) {
+        return ids[index];
+    }
+
+    @Override
+    String getAuthor(int index) {
+        return authors[index];
+    }
+
+    @Override
+    long getAuthorId(int index) {
+        return authorIds[index];
+    }
+
+    @Override
+    long getLikes(int index) {
+        return likes[index];
+    }
+
+    @Override
+    float getPopularity(int index) {
+        return popularity[index];
+    }
+
+    @Override
+    long getReads(int index) {
+        return reads[index];
+    }
+
+    @Override
+    List<String> getTags(int index) {
+        return tags[index];
+    }
+
+    @Override
+    void writeJson(int index, OutputStream out) throws IOException {
+        out.write(json, jsonOffsets[index], jsonLength(index));
+    }
+
+    @Override
+    int getOrdered(SortField field, int position) {
+        return orders[field.ordinal()][position];
+    }
+
+    @Override
+    boolean hasOtherVersions(int index) {
+        return true;
+    }
+
+    //The encoded JSON of all the posts, read by OffHeapPostStore to copy it
+    byte[] getJson() {
+        return json;
+    }
+
+    //To copy the encoded JSON of the post at the index
+    byte[] copyJson(int index) {
+        return Arrays.copyOfRange(json, jsonOffsets[index], jsonOffsets[index + 1]);
+    }
+
+    //The post indexes sorted by every SortField, by the ordinal of the field
+    int[][] getOrders() {
+        return orders;
+    }
+
+    int jsonLength(int index) {
+        return jsonOffsets[index + 1] - jsonOffsets[index];
+    }
+
+    //To sort the post indexes by every SortField
+    private int[][] sortOrders() {
+        int[][] sorted = new int[SortField.values().length][];
+        for (SortField field : SortField.values()) {
+            sorted[field.ordinal()] = IndexSorter.sortedIndexes(size(), (i, j) -> field.compare(this, i, this, j));
+        }
+        return sorted;
+    }
+
+    /**
+     * To get the orders by merging the posts which changed into the orders of the previous posts of the tag.
+     * A post with the same id, likes, reads and popularity as before keeps its place among the other kept posts,
+     * so only the new and changed posts are sorted, and every order is one pass over the previous one.
+     * The posts which are gone are left out. When most of the posts changed, the orders are sorted again.
+     * @param previous: the posts of the tag before the refresh
+     * @return: the post indexes sorted by every SortField, the same as sortOrders()
+     */
+    private int[][] updateOrders(PostStore previous) {
+        //The index of every kept post by its previous index, -1 for the posts which are gone or changed
+        int[] keptIndexes = new int[previous.size()];
+        Arrays.fill(keptIndexes, -1);
+        int[] changed = new int[size()];
+        int changedCount = 0;
+        for (int i = 0; i < size(); i++) {
+            int previousIndex = previous.indexOf(ids[i]);
+            if (previousIndex >= 0 && hasSortedValues(previous, previousIndex, i)) keptIndexes[previousIndex] = i;
+            else changed[changedCount++] = i;
+        }
+        if (changedCount * 2 > size()) return sortOrders();
+        changed = Arrays.copyOf(changed, changedCount);
+
+        int[][] updated = new int[SortField.values().length][];
+        for (SortField field : SortField.values()) {
+            IndexSorter.IndexComparator comparator = (i, j) -> field.compare(this, i, this, j);
+            IndexSorter.sort(changed, comparator);
+            int[] order = new int[size()];
+            int position = 0;
+            int next = 0;
+            for (int previousPosition = 0; previousPosition < previous.size(); previousPosition++) {
+                int kept = keptIndexes[previous.getOrdered(field, previousPosition)];
+                if (kept < 0) continue;
+                while (next < changedCount && comparator.compare(changed[next], kept) < 0) order[position++] = changed[next++];
+                order[position++] = kept;
+            }
+            while (next < changedCount) order[position++] = changed[next++];
+            updated[field.ordinal()] = order;
+        }
+        return updated;
+    }
+
+    //To tell if the previous post at the index has the same values of the SortField as the post at the index
+    private boolean hasSortedValues(PostStore previous, int previousIndex, int index) {
+        return previous.getLikes(previousIndex) == likes[index]
+                && previous.getReads(previousIndex) == reads[index]
+                && Float.compare(previous.getPopularity(previousIndex), popularity[index]) == 0;
+    }
+
+    //To encode every post the way Jackson writes a Post, keeping where each one starts
+    private byte[] encodeJson() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(ids.length * 160);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(bytes)) {
+            for (int i = 0; i < ids.length; i++) {
+                generator.writeStartObject();
+                generator.writeNumberField("id", ids[i]);
+                generator.writeStringField("author", authors[i]);
+                generator.writeNumberField("authorId", authorIds[i]);
+                generator.writeNumberField("likes", likes[i]);
+                generator.writeNumberField("popularity", popularity[i]);
+                generator.writeNumberField("reads", reads[i]);
+                generator.writeArrayFieldStart("tags");
+                for (String tag : tags[i]) generator.writeString(tag);
+                generator.writeEndArray();
+                generator.writeEndObject();
+                generator.flush();
+                jsonOffsets[i + 1] = bytes.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
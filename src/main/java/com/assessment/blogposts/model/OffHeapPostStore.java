@@ -0,0 +1,143 @@
+package com.assessment.blogposts.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+
+/**
+ * The posts of a tag in one direct buffer outside the heap, used when "hatchways.cache.off-heap" is true.
+ * The buffer holds one fixed-width record per post, then the sorted orders of the post indexes,
+ * then where the JSON of every post starts, then the encoded JSON of all the posts.
+ * The author and the tags of a record are indexes into the SharedValues of the store, so the heap only keeps
+ * this object, the different authors and lists of tags, and the buffer header for a tag, however many posts it has.
+ * The buffer is only read with absolute positions, so the concurrent requests share it without copying.
+ * Its memory is released when the store is garbage collected, up to "-XX:MaxDirectMemorySize" is used.
+ */
+class OffHeapPostStore extends PostStore {
+    private static final int ID = 0;
+    private static final int AUTHOR_ID = 8;
+    private static final int LIKES = 16;
+    private static final int READS = 24;
+    private static final int POPULARITY = 32;
+    private static final int AUTHOR = 36;
+    private static final int TAGS = 40;
+    static final int RECORD_SIZE = 44;
+    private static final int NO_AUTHOR = -1;
+    //The JSON of a post is copied to the heap through this buffer of the thread to be written
+    private static final ThreadLocal<byte[]> JSON_BUFFER = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    private final ByteBuffer buffer;
+    private final SharedValues<String> authors = new SharedValues<>();
+    private final SharedValues<List<String>> tagLists = new SharedValues<>();
+    private final int size;
+    private final int ordersOffset;
+    private final int jsonOffsetsOffset;
+    private final int jsonOffset;
+
+    //To copy the posts, their JSON and their orders out of the heap
+    OffHeapPostStore(HeapPostStore posts) {
+        this.size = posts.size();
+        this.ordersOffset = size * RECORD_SIZE;
+        this.jsonOffsetsOffset = ordersOffset + SortField.values().length * size * Integer.BYTES;
+        this.jsonOffset = jsonOffsetsOffset + (size + 1) * Integer.BYTES;
+        byte[] json = posts.getJson();
+        this.buffer = ByteBuffer.allocateDirect(jsonOffset + json.length);
+
+        for (int i = 0; i < size; i++) {
+            int record = i * RECORD_SIZE;
+            String author = posts.getAuthor(i);
+            buffer.putLong(record + ID, posts.getId(i));
+            buffer.putLong(record + AUTHOR_ID, posts.getAuthorId(i));
+            buffer.putLong(record + LIKES, posts.getLikes(i));
+            buffer.putLong(record + READS, posts.getReads(i));
+            buffer.putFloat(record + POPULARITY, posts.getPopularity(i));
+            buffer.putInt(record + AUTHOR, author == null ? NO_AUTHOR : authors.indexOf(author));
+            buffer.putInt(record + TAGS, tagLists.indexOf(posts.getTags(i)));
+        }
+        authors.seal();
+        tagLists.seal();
+        for (SortField field : SortField.values()) {
+            for (int position = 0; position < size; position++) {
+                buffer.putInt(orderPosition(field, position), posts.getOrdered(field, position));
+            }
+        }
+        int start = 0;
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(jsonOffsetsOffset + i * Integer.BYTES, start);
+            start += posts.jsonLength(i);
+        }
+        buffer.putInt(jsonOffsetsOffset + size * Integer.BYTES, start);
+        buffer.put(jsonOffset, json);
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    long getId(int index) {
+        return buffer.getLong(index * RECORD_SIZE + ID);
+    }
+
+    @Override
+    String getAuthor(int index) {
+        int author = buffer.getInt(index * RECORD_SIZE + AUTHOR);
+        return author == NO_AUTHOR ? null : authors.get(author);
+    }
+
+    @Override
+    long getAuthorId(int index) {
+        return buffer.getLong(index * RECORD_SIZE + AUTHOR_ID);
+    }
+
+    @Override
+    long getLikes(int index) {
+        return buffer.getLong(index * RECORD_SIZE + LIKES);
+    }
+
+    @Override
+    float getPopularity(int index) {
+        return buffer.getFloat(index * RECORD_SIZE + POPULARITY);
+    }
+
+    @Override
+    long getReads(int index) {
+        return buffer.getLong(index * RECORD_SIZE + READS);
+    }
+
+    @Override
+    List<String> getTags(int index) {
+        return tagLists.get(buffer.getInt(index * RECORD_SIZE + TAGS));
+    }
+
+    @Override
+    void writeJson(int index, OutputStream out) throws IOException {
+        int start = buffer.getInt(jsonOffsetsOffset + index * Integer.BYTES);
+        int length = buffer.getInt(jsonOffsetsOffset + (index + 1) * Integer.BYTES) - start;
+        byte[] json = JSON_BUFFER.get();
+        if (json.length < length) {
+            json = new byte[Math.max(length, json.length * 2)];
+            JSON_BUFFER.set(json);
+        }
+        buffer.get(jsonOffset + start, json, 0, length);
+        out.write(json, 0, length);
+    }
+
+    //The posts are not shared with the other tags, so any of them may be in another tag with other values
+    @Override
+    boolean hasOtherVersions(int index) {
+        return true;
+    }
+
+    @Override
+    int getOrdered(SortField field, int position) {
+        return buffer.getInt(orderPosition(field, position));
+    }
+
+    private int orderPosition(SortField field, int position) {
+        return ordersOffset + (field.ordinal() * size + position) * Integer.BYTES;
+    }
+}
@@ -1,21 +1,34 @@
 package com.assessment.blogposts.model;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
-import lombok.Setter;
 
+import java.beans.ConstructorProperties;
+import java.util.Collections;
 import java.util.List;
 
 
+/**
+ * A post of the external api. The post is immutable,
+ * so the cached posts are shared by concurrent requests without copying them.
+ */
 @Getter
-@Setter
-@AllArgsConstructor
 public class Post {
-    private long id;
-    private String author;
-    private long authorId;
-    private long likes;
-    private float popularity;
-    private long reads;
-    private List<String> tags;
+    private final long id;
+    private final String author;
+    private final long authorId;
+    private final long likes;
+    private final float popularity;
+    private final long reads;
+    private final List<String> tags;
+
+    @ConstructorProperties({"id", "author", "authorId", "likes", "popularity", "reads", "tags"})
+    public Post(long id, String author, long authorId, long likes, float popularity, long reads, List<String> tags) {
+        this.id = id;
+        this.author = author;
+        this.authorId = authorId;
+        this.likes = likes;
+        this.popularity = popularity;
+        this.reads = reads;
+        this.tags = tags == null ? Collections.emptyList() : List.copyOf(tags);
+    }
 }
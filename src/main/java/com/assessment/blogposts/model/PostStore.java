@@ -0,0 +1,55 @@
+package com.assessment.blogposts.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+
+/**
+ * The storage behind TagPosts, the fields of every post read by the index of the post,
+ * the encoded JSON of every post, and the indexes of the posts sorted by every SortField.
+ * SharedPostStore keeps them in the PostTable shared by all the tags, OffHeapPostStore in one direct buffer
+ * outside the heap, and HeapPostStore in primitive arrays while the tag is built.
+ */
+abstract class PostStore {
+
+    abstract int size();
+
+    abstract long getId(int index);
+
+    abstract String getAuthor(int index);
+
+    abstract long getAuthorId(int index);
+
+    abstract long getLikes(int index);
+
+    abstract float getPopularity(int index);
+
+    abstract long getReads(int index);
+
+    abstract List<String> getTags(int index);
+
+    //To write the JSON of the post at the index
+    abstract void writeJson(int index, OutputStream out) throws IOException;
+
+    //To tell if another tag may hold the post at the index with other values, see FetchDataHelper.mergePosts
+    abstract boolean hasOtherVersions(int index);
+
+    //To get the index of the post at this position of the ascending order of the field
+    abstract int getOrdered(SortField field, int position);
+
+    //To find the index of the post with the id by a binary search of the id order, or -1 if there is no such post
+    int indexOf(long id) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int index = getOrdered(SortField.ID, middle);
+            long middleId = getId(index);
+            if (middleId < id) low = middle + 1;
+            else if (middleId > id) high = middle - 1;
+            else return index;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,178 @@
+package com.assessment.blogposts.model;
+
+import com.assessment.blogposts.util.LongIntHashMap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+
+/**
+ * The posts of all the cached tags kept on the heap, every post stored once in a slot of the columns
+ * however many tags have it, the posts of a tag are only the slots of its posts, see SharedPostStore.
+ * The slot of a post is found by its id, a post fetched with other values than the stored ones
+ * gets a slot of its own, so the slots never change and the sorted orders of a tag stay right.
+ * The slots are counted by the tags holding them, and freed once no tag can be read anymore.
+ * Every change is made under the lock of the table, the slots of a built tag are read without it
+ * from the latest columns: they are only replaced by larger copies, and a slot is written before
+ * the tag holding it is published.
+ */
+class PostTable {
+    static final PostTable SHARED = new PostTable(1024);
+
+    private volatile Columns columns;
+    //The latest slot of every id, and how many slots hold a version of the id
+    private final LongIntHashMap slotsById;
+    private final LongIntHashMap versionCounts;
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int used;
+
+    PostTable(int capacity) {
+        this.columns = new Columns(capacity);
+        this.slotsById = new LongIntHashMap(capacity);
+        this.versionCounts = new LongIntHashMap(capacity);
+    }
+
+    /**
+     * The method to store the posts of a tag, reusing the slot of every post already stored with the same values
+     * @return: the slot of every post of the tag, by the index of the post.
+     */
+    synchronized int[] store(HeapPostStore posts) {
+        int[] slots = new int[posts.size()];
+        for (int i = 0; i < slots.length; i++) {
+            long id = posts.getId(i);
+            int slot = slotsById.get(id, -1);
+            if (slot < 0 || !columns.holds(slot, posts, i)) slot = add(posts, i, slot);
+            columns.refCounts[slot]++;
+            slots[i] = slot;
+        }
+        return slots;
+    }
+
+    //To release the slots of a tag which cannot be read anymore, a slot held by no tag is freed
+    synchronized void release(int[] slots) {
+        Columns current = columns;
+        for (int slot : slots) {
+            if (--current.refCounts[slot] > 0) continue;
+            long id = current.ids[slot];
+            if (slotsById.get(id, -1) == slot) slotsById.remove(id);
+            int versions = versionCounts.get(id, 0) - 1;
+            if (versions > 0) versionCounts.put(id, versions);
+            else versionCounts.remove(id);
+            current.clear(slot);
+            if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            freeSlots[freeCount++] = slot;
+            used--;
+        }
+    }
+
+    //The columns holding every slot stored so far
+    Columns getColumns() {
+        return columns;
+    }
+
+    //The number of slots in use
+    synchronized int size() {
+        return used;
+    }
+
+    //To put the post in a free slot, as the latest version of its id
+    private int add(HeapPostStore posts, int index, int latest) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (used == columns.ids.length) columns = columns.grow();
+            slot = used;
+        }
+        used++;
+        Columns current = columns;
+        current.set(slot, posts, index);
+        long id = current.ids[slot];
+        int versions = versionCounts.get(id, 0);
+        //Once there are two versions of an id, every one of them is marked, see Columns.otherVersions
+        if (versions > 0) {
+            current.otherVersions[slot] = true;
+            if (latest >= 0) current.otherVersions[latest] = true;
+        }
+        versionCounts.put(id, versions + 1);
+        slotsById.put(id, slot);
+        return slot;
+    }
+
+    //The columns of the slots, replaced by a copy twice as large when they are full
+    static class Columns {
+        final long[] ids;
+        final String[] authors;
+        final long[] authorIds;
+        final long[] likes;
+        final float[] popularity;
+        final long[] reads;
+        final List<String>[] tags;
+        final byte[][] json;
+        final int[] refCounts;
+        //True when another slot holds another version of the id
+        final boolean[] otherVersions;
+
+        @SuppressWarnings("unchecked")
+        Columns(int capacity) {
+            this.ids = new long[capacity];
+            this.authors = new String[capacity];
+            this.authorIds = new long[capacity];
+            this.likes = new long[capacity];
+            this.popularity = new float[capacity];
+            this.reads = new long[capacity];
+            this.tags = new List[capacity];
+            this.json = new byte[capacity][];
+            this.refCounts = new int[capacity];
+            this.otherVersions = new boolean[capacity];
+        }
+
+        private Columns(Columns columns, int capacity) {
+            this.ids = Arrays.copyOf(columns.ids, capacity);
+            this.authors = Arrays.copyOf(columns.authors, capacity);
+            this.authorIds = Arrays.copyOf(columns.authorIds, capacity);
+            this.likes = Arrays.copyOf(columns.likes, capacity);
+            this.popularity = Arrays.copyOf(columns.popularity, capacity);
+            this.reads = Arrays.copyOf(columns.reads, capacity);
+            this.tags = Arrays.copyOf(columns.tags, capacity);
+            this.json = Arrays.copyOf(columns.json, capacity);
+            this.refCounts = Arrays.copyOf(columns.refCounts, capacity);
+            this.otherVersions = Arrays.copyOf(columns.otherVersions, capacity);
+        }
+
+        private Columns grow() {
+            return new Columns(this, ids.length * 2);
+        }
+
+        //To tell if the slot holds the post at the index with the same values
+        private boolean holds(int slot, HeapPostStore posts, int index) {
+            return likes[slot] == posts.getLikes(index)
+                    && reads[slot] == posts.getReads(index)
+                    && Float.compare(popularity[slot], posts.getPopularity(index)) == 0
+                    && authorIds[slot] == posts.getAuthorId(index)
+                    && Objects.equals(authors[slot], posts.getAuthor(index))
+                    && tags[slot].equals(posts.getTags(index));
+        }
+
+        private void set(int slot, HeapPostStore posts, int index) {
+            ids[slot] = posts.getId(index);
+            authors[slot] = posts.getAuthor(index);
+            authorIds[slot] = posts.getAuthorId(index);
+            likes[slot] = posts.getLikes(index);
+            popularity[slot] = posts.getPopularity(index);
+            reads[slot] = posts.getReads(index);
+            tags[slot] = posts.getTags(index);
+            json[slot] = posts.copyJson(index);
+            otherVersions[slot] = false;
+        }
+
+        private void clear(int slot) {
+            authors[slot] = null;
+            tags[slot] = null;
+            json[slot] = null;
+            otherVersions[slot] = false;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.assessment.blogposts.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+
+/**
+ * A request for one page of the posts of the tags, parsed once from the request parameters,
+ * see FetchDataHelper.parseQuery. The tags are kept sorted and without duplicates, so the queries of
+ * the same tags in any order or repetition are equal and share the same cached response.
+ * The tags array is shared, so it must not be modified.
+ */
+@Getter
+public final class PostsQuery {
+    private final String[] tags;
+    private final SortField sortBy;
+    private final Direction direction;
+    private final int offset;
+    //The maximum number of posts, null for all the posts after the offset
+    private final Integer limit;
+
+    public PostsQuery(String[] tags, SortField sortBy, Direction direction, int offset, Integer limit) {
+        this.tags = tags;
+        this.sortBy = sortBy;
+        this.direction = direction;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    public boolean isAscending() {
+        return direction.isAscending();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PostsQuery)) return false;
+        PostsQuery query = (PostsQuery) o;
+        return offset == query.offset && sortBy == query.sortBy && direction == query.direction
+                && Objects.equals(limit, query.limit) && Arrays.equals(tags, query.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(tags);
+        result = 31 * result + sortBy.hashCode();
+        result = 31 * result + direction.hashCode();
+        result = 31 * result + offset;
+        return 31 * result + Objects.hashCode(limit);
+    }
+
+    //The query as its parameters, only built when it is logged
+    @Override
+    public String toString() {
+        return "tags=" + String.join(",", tags) + "&sortBy=" + sortBy.getParam() + "&direction=" + direction.getParam()
+                + "&offset=" + offset + (limit == null ? "" : "&limit=" + limit);
+    }
+}
@@ -0,0 +1,100 @@
+package com.assessment.blogposts.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.Cleaner;
+import java.util.List;
+
+
+/**
+ * The posts of a tag kept in the PostTable shared by all the tags, the default storage of TagPosts.
+ * The tag only keeps the slot of every post and its sorted orders, the posts it has in common
+ * with the other cached tags are stored once.
+ * The slots are released when the store is garbage collected and not when the tag leaves the cache,
+ * so a request still reading an evicted or refreshed tag never reads a reused slot.
+ */
+class SharedPostStore extends PostStore {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final PostTable table;
+    private final int[] slots;
+    private final int[][] orders;
+
+    SharedPostStore(PostTable table, HeapPostStore posts) {
+        this.table = table;
+        this.slots = table.store(posts);
+        this.orders = posts.getOrders();
+        if (slots.length > 0) CLEANER.register(this, new Release(table, slots));
+    }
+
+    @Override
+    int size() {
+        return slots.length;
+    }
+
+    @Override
+    long getId(int index) {
+        return table.getColumns().ids[slots[index]];
+    }
+
+    @Override
+    String getAuthor(int index) {
+        return table.getColumns().authors[slots[index]];
+    }
+
+    @Override
+    long getAuthorId(int index) {
+        return table.getColumns().authorIds[slots[index]];
+    }
+
+    @Override
+    long getLikes(int index) {
+        return table.getColumns().likes[slots[index]];
+    }
+
+    @Override
+    float getPopularity(int index) {
+        return table.getColumns().popularity[slots[index]];
+    }
+
+    @Override
+    long getReads(int index) {
+        return table.getColumns().reads[slots[index]];
+    }
+
+    @Override
+    List<String> getTags(int index) {
+        return table.getColumns().tags[slots[index]];
+    }
+
+    @Override
+    void writeJson(int index, OutputStream out) throws IOException {
+        out.write(table.getColumns().json[slots[index]]);
+    }
+
+    @Override
+    boolean hasOtherVersions(int index) {
+        return table.getColumns().otherVersions[slots[index]];
+    }
+
+    @Override
+    int getOrdered(SortField field, int position) {
+        return orders[field.ordinal()][position];
+    }
+
+    //To release the slots, it must not refer to the store or the store is never collected
+    private static class Release implements Runnable {
+        private final PostTable table;
+        private final int[] slots;
+
+        Release(PostTable table, int[] slots) {
+            this.table = table;
+            this.slots = slots;
+        }
+
+        @Override
+        public void run() {
+            table.release(slots);
+        }
+    }
+}
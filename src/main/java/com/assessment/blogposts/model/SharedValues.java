@@ -0,0 +1,40 @@
+package com.assessment.blogposts.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * The values shared by the posts of one OffHeapPostStore, each value stored once on the heap
+ * and referred to by its index from the records outside the heap.
+ * There are as many values as there are different authors or lists of tags in the store, not as many as there are posts,
+ * and they are released with the store when its tag is evicted.
+ * The values are added while the store is built and only read after seal(), so they are read without locking.
+ */
+class SharedValues<T> {
+    private Map<T, Integer> indexes = new HashMap<>();
+    private Object[] values = new Object[16];
+    private int size;
+
+    //To get the index of the value, adding it the first time
+    int indexOf(T value) {
+        Integer index = indexes.get(value);
+        if (index != null) return index;
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        values[size] = value;
+        indexes.put(value, size);
+        return size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        return (T) values[index];
+    }
+
+    //To drop the indexes of the values once the store is built, only get(index) is used after
+    void seal() {
+        indexes = null;
+        values = Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,73 @@
+package com.assessment.blogposts.model;
+
+
+/**
+ * The fields the posts can be sorted by, named as in the "sortBy" parameter.
+ */
+public enum SortField {
+    ID("id"),
+    READS("reads"),
+    LIKES("likes"),
+    POPULARITY("popularity");
+
+    private final String param;
+
+    SortField(String param) {
+        this.param = param;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    //To get the field named by the "sortBy" parameter, or null if there is no such field
+    public static SortField fromParam(String sortBy) {
+        for (SortField field : values()) {
+            if (field.param.equals(sortBy)) return field;
+        }
+        return null;
+    }
+
+    //To compare two posts by this field in ascending order, the ties are broken by the id
+    public int compare(Post p1, Post p2) {
+        int result;
+        switch (this) {
+            case READS:
+                result = Long.compare(p1.getReads(), p2.getReads());
+                break;
+            case LIKES:
+                result = Long.compare(p1.getLikes(), p2.getLikes());
+                break;
+            case POPULARITY:
+                result = Float.compare(p1.getPopularity(), p2.getPopularity());
+                break;
+            default:
+                result = 0;
+        }
+        return result != 0 ? result : Long.compare(p1.getId(), p2.getId());
+    }
+
+    //To compare two cached posts by this field in ascending order, reading the primitive columns of the tags
+    public int compare(TagPosts posts1, int index1, TagPosts posts2, int index2) {
+        return compare(posts1.getStore(), index1, posts2.getStore(), index2);
+    }
+
+    //To compare two stored posts by this field in ascending order
+    int compare(PostStore posts1, int index1, PostStore posts2, int index2) {
+        int result;
+        switch (this) {
+            case READS:
+                result = Long.compare(posts1.getReads(index1), posts2.getReads(index2));
+                break;
+            case LIKES:
+                result = Long.compare(posts1.getLikes(index1), posts2.getLikes(index2));
+                break;
+            case POPULARITY:
+                result = Float.compare(posts1.getPopularity(index1), posts2.getPopularity(index2));
+                break;
+            default:
+                result = 0;
+        }
+        return result != 0 ? result : Long.compare(posts1.getId(index1), posts2.getId(index2));
+    }
+}
@@ -0,0 +1,234 @@
+package com.assessment.blogposts.model;
+
+import com.assessment.blogposts.util.LongHashSet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * The posts of one tag as they are kept in the cache, an immutable snapshot shared by all requests.
+ * The posts are stored by column in primitive arrays instead of one Post object per post,
+ * they are added through the Builder, either from a PostsList or while the response of external api is parsed,
+ * the authors and the lists of tags are interned, so equal values are stored once for all the cached tags,
+ * and weakly, so a value no cached tag refers to any more is dropped, see WeakInterner.
+ * The posts are sorted once by every SortField when the tag is fetched, each order is kept
+ * as a permutation of the post indexes in ascending order and read backwards for "desc".
+ * A refreshed tag built from its previous posts only sorts the posts which changed and merges them
+ * into the previous orders, see Builder.build(TagPosts).
+ * A Post object is only created for a post which goes into a response,
+ * and the JSON of every post is encoded once, so a streamed response copies the bytes instead of serializing again.
+ * The columns, the JSON and the orders are kept in a PostStore, by default in the PostTable shared by all the tags
+ * so a post of several tags is stored once, see SharedPostStore, or in a direct buffer outside the heap
+ * when the builder is asked for it, see OffHeapPostStore.
+ * Nothing is modified after construction, so concurrent requests read it without locking or copying.
+ */
+public class TagPosts {
+    private static final WeakInterner<String> AUTHORS = new WeakInterner<>();
+    private static final WeakInterner<List<String>> TAG_LISTS = new WeakInterner<>();
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    private static final TagPosts EMPTY = new Builder(false).build();
+
+    private final PostStore store;
+    //Unique for every TagPosts, a refreshed tag gets a new version, see getVersion()
+    private final long version = VERSIONS.incrementAndGet();
+
+    private TagPosts(PostStore store) {
+        this.store = store;
+    }
+
+    //To build the cached posts of a tag from the response of external api
+    public static TagPosts of(PostsList postsList) {
+        return of(postsList, false);
+    }
+
+    //To build the cached posts of a tag from the response of external api, outside the heap when "offHeap" is true
+    public static TagPosts of(PostsList postsList, boolean offHeap) {
+        if (postsList == null || postsList.getPosts() == null || postsList.getPosts().isEmpty()) return EMPTY;
+        Builder builder = new Builder(offHeap);
+        for (Post post : postsList.getPosts()) {
+            builder.add(post.getId(), post.getAuthor(), post.getAuthorId(), post.getLikes(),
+                    post.getPopularity(), post.getReads(), post.getTags());
+        }
+        return builder.build();
+    }
+
+    //To start the cached posts of a tag, which are added one by one while the response is read
+    public static Builder builder() {
+        return new Builder(false);
+    }
+
+    //To start the cached posts of a tag, kept outside the heap when "offHeap" is true, see OffHeapPostStore
+    public static Builder builder(boolean offHeap) {
+        return new Builder(offHeap);
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    //To identify this snapshot of the tag, so a response built from it is not served once the tag is fetched again
+    public long getVersion() {
+        return version;
+    }
+
+    //To tell if the posts are kept outside the heap
+    public boolean isOffHeap() {
+        return store instanceof OffHeapPostStore;
+    }
+
+    public long getId(int index) {
+        return store.getId(index);
+    }
+
+    public long getLikes(int index) {
+        return store.getLikes(index);
+    }
+
+    public float getPopularity(int index) {
+        return store.getPopularity(index);
+    }
+
+    public long getReads(int index) {
+        return store.getReads(index);
+    }
+
+    //To create the Post object of the post at the index
+    public Post getPost(int index) {
+        return new Post(store.getId(index), store.getAuthor(index), store.getAuthorId(index), store.getLikes(index),
+                store.getPopularity(index), store.getReads(index), store.getTags(index));
+    }
+
+    //To write the JSON of the post at the index, encoded once when the tag was fetched
+    public void writeJson(int index, OutputStream out) throws IOException {
+        store.writeJson(index, out);
+    }
+
+    //To tell if another cached tag may hold the post at the index with other values
+    public boolean hasOtherVersions(int index) {
+        return store.hasOtherVersions(index);
+    }
+
+    //To find the index of the post with the id by a binary search of the id order, or -1 if there is no such post
+    public int indexOf(long id) {
+        return store.indexOf(id);
+    }
+
+    PostStore getStore() {
+        return store;
+    }
+
+    //To get the index of the post at this position of the posts sorted by the field in ascending order
+    public int getOrdered(SortField field, int position) {
+        return store.getOrdered(field, position);
+    }
+
+    //To get a read-only view of the posts sorted by the field, creating a Post only when it is read
+    public List<Post> sortedView(SortField field, boolean ascending) {
+        return new SortedView(this, field, ascending);
+    }
+
+    private static class SortedView extends AbstractList<Post> implements RandomAccess {
+        private final TagPosts tagPosts;
+        private final SortField field;
+        private final boolean ascending;
+
+        SortedView(TagPosts tagPosts, SortField field, boolean ascending) {
+            this.tagPosts = tagPosts;
+            this.field = field;
+            this.ascending = ascending;
+        }
+
+        @Override
+        public Post get(int index) {
+            return tagPosts.getPost(tagPosts.getOrdered(field, ascending ? index : tagPosts.size() - 1 - index));
+        }
+
+        @Override
+        public int size() {
+            return tagPosts.size();
+        }
+    }
+
+    /**
+     * To collect the posts of a tag straight into the columns while the response of external api is parsed,
+     * without a Post object or a PostsList in between.
+     * A post whose id was already added is skipped.
+     */
+    public static class Builder {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private String[] authors = new String[INITIAL_CAPACITY];
+        private long[] authorIds = new long[INITIAL_CAPACITY];
+        private long[] likes = new long[INITIAL_CAPACITY];
+        private float[] popularity = new float[INITIAL_CAPACITY];
+        private long[] reads = new long[INITIAL_CAPACITY];
+        @SuppressWarnings("unchecked")
+        private List<String>[] tags = new List[INITIAL_CAPACITY];
+        private final LongHashSet addedIds = new LongHashSet(INITIAL_CAPACITY);
+        private final boolean offHeap;
+        private int size;
+
+        private Builder(boolean offHeap) {
+            this.offHeap = offHeap;
+        }
+
+        /**
+         * To add one post, the tags are only read here, so the caller may reuse the list for the next post.
+         * @param tags: the tags of the post, null for no tags
+         * @return: this builder
+         */
+        public Builder add(long id, String author, long authorId, long likes, float popularity, long reads, List<String> tags) {
+            if (!addedIds.add(id)) return this;
+            if (size == ids.length) grow();
+            this.ids[size] = id;
+            this.authors[size] = author == null ? null : AUTHORS.intern(author);
+            this.authorIds[size] = authorId;
+            this.likes[size] = likes;
+            this.popularity[size] = popularity;
+            this.reads[size] = reads;
+            this.tags[size] = internTags(tags);
+            size++;
+            return this;
+        }
+
+        public TagPosts build() {
+            return build(null);
+        }
+
+        /**
+         * To build the posts of a refreshed tag, the sorted orders are updated from the orders of the previous posts
+         * instead of sorted again, so a refresh where few posts changed costs one pass over every order.
+         * @param previous: the posts of the tag before the refresh, null to sort the posts from scratch
+         * @return: the posts, the same as build() whatever the previous posts are
+         */
+        public TagPosts build(TagPosts previous) {
+            HeapPostStore store = new HeapPostStore(size, ids, authors, authorIds, likes, popularity, reads, tags,
+                    previous == null ? null : previous.store);
+            return new TagPosts(offHeap ? new OffHeapPostStore(store) : new SharedPostStore(PostTable.SHARED, store));
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            authors = Arrays.copyOf(authors, capacity);
+            authorIds = Arrays.copyOf(authorIds, capacity);
+            likes = Arrays.copyOf(likes, capacity);
+            popularity = Arrays.copyOf(popularity, capacity);
+            reads = Arrays.copyOf(reads, capacity);
+            tags = Arrays.copyOf(tags, capacity);
+        }
+
+        //To get the shared list equal to the tags, so equal lists of tags are stored once
+        private static List<String> internTags(List<String> tags) {
+            if (tags == null || tags.isEmpty()) return List.of();
+            return TAG_LISTS.intern(tags, List::copyOf);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.assessment.blogposts.model;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.UnaryOperator;
+
+
+/**
+ * The table of the authors or the lists of tags of the cached posts, so equal values are stored once for all the tags.
+ * The values are only weakly held, a value is dropped from the table once no cached tag refers to it,
+ * so the table never grows past the values of the posts in the cache.
+ * The table is locked for every value, it is only used while a tag is built and never by a request.
+ */
+class WeakInterner<T> {
+    private final Map<T, WeakReference<T>> values = new WeakHashMap<>();
+
+    //To get the value of the table equal to this one, adding it the first time
+    T intern(T value) {
+        return intern(value, UnaryOperator.identity());
+    }
+
+    //To get the value of the table equal to this one, adding a copy of it the first time
+    synchronized T intern(T value, UnaryOperator<T> copy) {
+        WeakReference<T> reference = values.get(value);
+        T interned = reference == null ? null : reference.get();
+        if (interned != null) return interned;
+        interned = copy.apply(value);
+        values.put(interned, new WeakReference<>(interned));
+        return interned;
+    }
+}
@@ -0,0 +1,230 @@
+package com.assessment.blogposts.service;
+
+import com.assessment.blogposts.config.HatchwaysProperties;
+import com.assessment.blogposts.exceptions.UpstreamUnavailableException;
+import com.assessment.blogposts.model.TagPosts;
+import com.assessment.blogposts.util.PostsMetrics;
+import com.assessment.blogposts.util.RetryBudget;
+import com.assessment.blogposts.util.TagPostsReader;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.core.IntervalFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * The client of external Rest service endpoint "hatchways.base-url", by default:
+ * https://api.hatchways.io/assessment/blog/posts
+ * The posts of every single tag are cached in "TagPostsCache", sorted once by every field,
+ * so any combination of tags and sort order is assembled from the same cached entries.
+ * The stale tags are fetched again by the cache in the background, see CacheConfig.
+ * The response is parsed while it is read from the connection, straight into the cached TagPosts,
+ * and the sorted orders of a refreshed tag are updated from its cached posts instead of sorted from scratch.
+ * The RestTemplate uses the pooled http client of HttpClientConfig.
+ * The calls go through a bulkhead, a circuit breaker and budgeted retries ("hatchways.resilience.*"),
+ * all the attempts of a call end within "hatchways.fetch-timeout", so a failing api cannot hold a fetch thread longer,
+ * the same circuit breaker, bulkhead and retry budget guard the calls of ReactiveHatchDataService,
+ * and the posts of a tag still held by "TagPostsCache" are served while the external api fails to refresh them.
+ * Every call is timed by tag in PostsMetrics, with the number of calls in flight.
+ */
+@Service
+public class HatchApiClient {
+
+    public static final String TAG_POSTS_CACHE = "TagPostsCache";
+    public static final String TAG_PARAM = "?tag=";
+    private static final String UPSTREAM = "hatchways";
+    private static final String GZIP = "gzip";
+    private final String PRE_URL;
+    private final String UNAVAILABLE_ERROR = "upstream service is unavailable";
+    private RestTemplate restTemplate;
+    private TagPostsReader tagPostsReader;
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+    private IntervalFunction retryInterval;
+    private int maxAttempts;
+    //The time all the attempts of one call may take, and the longest an attempt takes before it times out
+    private Duration fetchTimeout;
+    private Duration attemptTimeout;
+    private RetryBudget retryBudget;
+    private PostsMetrics postsMetrics;
+
+    private static final Logger logger = LoggerFactory.getLogger(HatchApiClient.class);
+
+    @Autowired
+    public HatchApiClient(RestTemplateBuilder restTemplateBuilder, HatchwaysProperties hatchwaysProperties,
+                          PostsMetrics postsMetrics) {
+        this.restTemplate = restTemplateBuilder.build();
+        this.postsMetrics = postsMetrics;
+        this.PRE_URL = hatchwaysProperties.getBaseUrl() + TAG_PARAM;
+        this.tagPostsReader = new TagPostsReader(hatchwaysProperties.getCache().isOffHeap());
+
+        HatchwaysProperties.Resilience resilience = hatchwaysProperties.getResilience();
+        this.circuitBreaker = CircuitBreaker.of(UPSTREAM, CircuitBreakerConfig.custom()
+                .failureRateThreshold(resilience.getFailureRateThreshold())
+                .slidingWindowSize(resilience.getSlidingWindowSize())
+                .minimumNumberOfCalls(resilience.getMinimumCalls())
+                .waitDurationInOpenState(resilience.getOpenDuration())
+                .recordException(HatchApiClient::isUpstreamFailure)
+                .build());
+        this.bulkhead = Bulkhead.of(UPSTREAM, BulkheadConfig.custom()
+                .maxConcurrentCalls(resilience.getMaxConcurrentCalls())
+                .maxWaitDuration(resilience.getMaxWait())
+                .build());
+        this.retryBudget = new RetryBudget(resilience.getRetryBudgetRatio(), resilience.getRetryBurst());
+        this.retryInterval = IntervalFunction.ofExponentialRandomBackoff(resilience.getRetryBackoff(), 2, 0.5);
+        this.maxAttempts = resilience.getMaxAttempts();
+        this.fetchTimeout = hatchwaysProperties.getFetchTimeout();
+        this.attemptTimeout = hatchwaysProperties.getClient().getReadTimeout();
+    }
+
+    /**
+     * The method to get the posts of one tag from cache first
+     * And if the tag is not in the cache, then fetch it from external service and store in cache.
+     * The returned object is shared by all the requests with this tag, so it must not be modified.
+     * @param tag: tag of the post
+     * @return: A TagPosts object contains the posts with this tag, sorted by every field.
+     */
+    @Cacheable(TAG_POSTS_CACHE)
+    public TagPosts getPostsByTag(String tag) {
+        return fetchPostsByTag(tag);
+    }
+
+    /**
+     * The method to fetch the posts of one tag from external service, bypassing the cache.
+     * It is also used by the cache loader to load a missing tag and to refresh a stale one in the background.
+     * A failed call is retried with jitter within the retry budget, at most "max-concurrent-calls" calls run at once,
+     * a retry is only made when it can end within the fetch timeout of the call,
+     * and the circuit breaker stops calling the external api while most calls fail.
+     * @param tag: tag of the post
+     * @return: A TagPosts object contains the posts with this tag, sorted by every field.
+     */
+    public TagPosts fetchPostsByTag(String tag) {
+        return fetchPostsByTag(tag, null);
+    }
+
+    /**
+     * The method to fetch the posts of one tag again, used by the cache loader to refresh a stale tag,
+     * see fetchPostsByTag(tag). The sorted orders are updated from the previous posts of the tag,
+     * and when the call cannot be made or fails, the previous posts are returned instead,
+     * so a tag is served stale while the external api is down, at most until it expires from the cache.
+     * @param tag: tag of the post
+     * @param previous: the posts of the tag in the cache, null if there are none
+     * @return: A TagPosts object contains the posts with this tag, sorted by every field.
+     */
+    public TagPosts fetchPostsByTag(String tag, TagPosts previous) {
+        recordCall();
+        Supplier<TagPosts> call = CircuitBreaker.decorateSupplier(circuitBreaker,
+                Bulkhead.decorateSupplier(bulkhead, () -> callUpstream(tag, previous)));
+        try {
+            return callWithRetries(call);
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            return fallback(tag, previous, e, new UpstreamUnavailableException(UNAVAILABLE_ERROR, e));
+        } catch (RuntimeException e) {
+            if (!isUpstreamFailure(e)) throw e;
+            return fallback(tag, previous, e, e);
+        }
+    }
+
+    //The state of the circuit breaker of the external api
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    //To count a call to the external api in the retry budget, once however many attempts it makes
+    void recordCall() {
+        retryBudget.recordCall();
+    }
+
+    //The time all the attempts of a call starting now must end by, in System.nanoTime()
+    long callDeadline() {
+        return System.nanoTime() + fetchTimeout.toNanos();
+    }
+
+    /**
+     * To decide if a failed attempt is retried: the failure is an upstream one, attempts are left, the backoff and
+     * one more attempt end before the deadline, and the retry budget has a token, checked in this order so a token
+     * is only taken for a retry which is made.
+     * @param attempt: the number of the attempt which failed, from 1
+     * @param deadline: the time all the attempts must end by, see callDeadline()
+     * @return: the backoff before the next attempt in nanoseconds, or -1 when the failure is not retried.
+     */
+    long retryBackoff(Throwable e, int attempt, long deadline) {
+        long backoff = TimeUnit.MILLISECONDS.toNanos(retryInterval.apply(attempt));
+        if (!isUpstreamFailure(e) || attempt >= maxAttempts
+                || System.nanoTime() + backoff + attemptTimeout.toNanos() > deadline
+                || !retryBudget.tryRetry()) return -1;
+        return backoff;
+    }
+
+    //To make the call, retrying the upstream failures as decided by retryBackoff
+    private TagPosts callWithRetries(Supplier<TagPosts> call) {
+        long deadline = callDeadline();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                long backoff = retryBackoff(e, attempt, deadline);
+                if (backoff < 0) throw e;
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    //To call the external api once, updating the orders of the previous posts of the tag
+    private TagPosts callUpstream(String tag, TagPosts previous) {
+        logger.info("Fetching the posts of tag {} from external api", tag);
+        return postsMetrics.recordUpstreamCall(tag, () -> restTemplate.execute(PRE_URL + tag, HttpMethod.GET, null, response -> {
+            //The Apache client decompresses the body itself and drops the header, the JDK client does not
+            boolean gzip = GZIP.equalsIgnoreCase(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+            return tagPostsReader.read(gzip ? new GZIPInputStream(response.getBody()) : response.getBody(), previous);
+        }));
+    }
+
+    //To serve the previous posts of the tag still in the cache, or throw if the tag is not cached
+    private TagPosts fallback(String tag, TagPosts previous, Exception cause, RuntimeException noFallback) {
+        if (previous == null) throw noFallback;
+        logger.warn("Serving the cached posts of tag {}: {}", tag, cause.toString());
+        return previous;
+    }
+
+    //The errors of the external api itself, an unreachable or slow server and 5xx responses, not the 4xx
+    static boolean isUpstreamFailure(Throwable e) {
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException
+                || e instanceof WebClientRequestException
+                || (e instanceof WebClientResponseException && ((WebClientResponseException) e).getStatusCode().is5xxServerError());
+    }
+}
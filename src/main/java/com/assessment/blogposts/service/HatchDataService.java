@@ -1,88 +1,415 @@
 package com.assessment.blogposts.service;
 
+import com.assessment.blogposts.config.HatchwaysProperties;
+import com.assessment.blogposts.exceptions.ErrorHandler;
 import com.assessment.blogposts.exceptions.InvalidParameterException;
+import com.assessment.blogposts.exceptions.UpstreamTimeoutException;
+import com.assessment.blogposts.model.BatchQuery;
+import com.assessment.blogposts.model.EncodedPosts;
 import com.assessment.blogposts.model.PostsList;
+import com.assessment.blogposts.model.PostsQuery;
+import com.assessment.blogposts.model.TagPosts;
 import com.assessment.blogposts.util.FetchDataHelper;
+import com.assessment.blogposts.util.PostsMetrics;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.http.HttpMethod;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 
 /**
- * The service to get Blog Posts from external Rest service endpoint:
- * https://api.hatchways.io/assessment/blog/posts
+ * The service to get Blog Posts of the requested tags through the HatchApiClient
  * This service maps the result to corresponding controller methods
+ * The cached tags are taken from the per-tag cache on the request thread,
+ * and the missing tags of one request are fetched concurrently on the application task executor,
+ * whose pool size ("spring.task.execution.pool.*") limits how many upstream calls run at once.
+ * With "spring.threads.virtual.enabled" the executor starts a virtual thread for every fetch instead,
+ * limited by "spring.task.execution.simple.concurrency-limit".
+ * The concurrent requests missing the same tag wait on one shared fetch of that tag.
+ * The encoded responses are cached apart from the tags, bounded by "hatchways.cache.maximum-response-size".
+ * The merge, the writing of the responses and their number of posts are recorded in PostsMetrics.
+ * A batch of queries fetches every tag once for all its queries, and merges the queries concurrently.
  */
 @Service
 public class HatchDataService {
 
-    private final String PRE_URL = "https://api.hatchways.io/assessment/blog/posts?tag=";
+    public static final String ENCODED_POSTS_CACHE = "EncodedPostsCache";
+    public static final String QUERIES_ERROR = "queries are required";
+    public static final String TOO_MANY_QUERIES_ERROR = "too many queries";
+    private static final byte[] BATCH_START = "{\"results\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BATCH_END = "]}".getBytes(StandardCharsets.UTF_8);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final String FETCH_TIMEOUT_ERROR = "upstream request timed out";
     private FetchDataHelper fetchDataHelper;
-    private RestTemplate restTemplate;
+    private HatchApiClient hatchApiClient;
+    private Executor fetchExecutor;
+    private org.springframework.cache.Cache tagPostsCache;
+    private Duration fetchTimeout;
+    private int maxBatchQueries;
+    private PostsMetrics postsMetrics;
+    //The encoded responses by the query and the versions of the cached tags they were built from
+    private Cache<ResponseKey, EncodedPosts> responseCache;
+    //The tags being fetched right now, the concurrent requests of the same tag share one future
+    private final ConcurrentMap<String, CompletableFuture<TagPosts>> inFlightTags = new ConcurrentHashMap<>();
 
     private static final Logger logger = LoggerFactory.getLogger(HatchDataService.class);
 
     @Autowired
-    public HatchDataService(RestTemplateBuilder restTemplateBuilder) {
-        this.restTemplate = restTemplateBuilder.build();
+    public HatchDataService(HatchApiClient hatchApiClient,
+                            CacheManager cacheManager,
+                            @Qualifier("applicationTaskExecutor") Executor fetchExecutor,
+                            HatchwaysProperties hatchwaysProperties,
+                            PostsMetrics postsMetrics) {
+        this.hatchApiClient = hatchApiClient;
         this.fetchDataHelper = new FetchDataHelper();
+        this.fetchExecutor = fetchExecutor;
+        this.tagPostsCache = cacheManager.getCache(HatchApiClient.TAG_POSTS_CACHE);
+        this.fetchTimeout = hatchwaysProperties.getFetchTimeout();
+        this.maxBatchQueries = hatchwaysProperties.getMaxBatchQueries();
+        this.postsMetrics = postsMetrics;
+        this.responseCache = Caffeine.newBuilder()
+                .maximumWeight(hatchwaysProperties.getCache().getMaximumResponseSize().toBytes())
+                .weigher((ResponseKey key, EncodedPosts posts) -> posts.size())
+                .expireAfterWrite(hatchwaysProperties.getCache().getExpireAfterWrite())
+                .recordStats()
+                .build();
+    }
+
+    //The cache of the encoded responses, its statistics are published as "EncodedPostsCache" by MetricsConfig
+    public Cache<?, ?> getResponseCache() {
+        return responseCache;
     }
 
     /**
-     * The method to get posts from cache first
-     * And if no corresponding result in the cache, then fetch data from external service and store in cache.
+     * The method to get posts of the tags, each tag is taken from the per-tag cache first
+     * And the tags not in the cache are fetched from external service and stored in cache.
      * @param tags: tag of the post
      * @param sortBy: the result will be ordered based on the "sortBy" field
      * @param direction: the result will be sort in asc or desc order specified by "direction"
      * @return: A PostsList object contains the list of posts.
      */
-    @Cacheable("PostsCache")
     public PostsList getPosts(String tags, String sortBy, String direction) {
-        logger.info("No cached data found, running method to fetch data from external api");
-        if (tags == null || tags.length() == 0) {
-            throw new InvalidParameterException(fetchDataHelper.TAGS_PARAM_ERROR);
+        return getPosts(tags, sortBy, direction, 0, null);
+    }
+
+    /**
+     * The method to get one page of the posts of the tags, see getPosts(tags, sortBy, direction)
+     * @param offset: the number of sorted posts to skip
+     * @param limit: the maximum number of posts to return, null for all the posts after the offset
+     * @return: A PostsList object contains the page of posts.
+     */
+    public PostsList getPosts(String tags, String sortBy, String direction, int offset, Integer limit) {
+        return getPosts(fetchDataHelper.parseQuery(tags, sortBy, direction, offset, limit));
+    }
+
+    //To get the page of the posts asked by a parsed query
+    public PostsList getPosts(PostsQuery query) {
+        List<TagPosts> lists = fetchPosts(query);
+        PostsList posts = postsMetrics.getMergeTimer().record(() -> fetchDataHelper.mergeAndSortPosts(lists, query));
+        postsMetrics.recordPostsPerResponse(posts.getPosts().size());
+        return posts;
+    }
+
+    /**
+     * The method to get one page of the posts of the tags as encoded JSON, see getPosts(tags, sortBy, direction, offset, limit).
+     * The encoded page is cached by the query and the versions of the cached tags it is built from,
+     * so a repeated query is answered with the same bytes and ETag until one of its tags is fetched again.
+     * @return: An EncodedPosts object contains the JSON of the page, its gzip compressed bytes and ETags.
+     */
+    public EncodedPosts getEncodedPosts(String tags, String sortBy, String direction, int offset, Integer limit) {
+        return getEncodedPosts(fetchDataHelper.parseQuery(tags, sortBy, direction, offset, limit));
+    }
+
+    //To get the page of the posts asked by a parsed query as encoded JSON
+    public EncodedPosts getEncodedPosts(PostsQuery query) {
+        return getEncodedPosts(query, fetchPosts(query));
+    }
+
+    //To get the page of the fetched posts of the tags from the response cache, or encode it
+    private EncodedPosts getEncodedPosts(PostsQuery query, List<TagPosts> lists) {
+        EncodedPosts posts = responseCache.get(new ResponseKey(query, lists), key -> encode(lists, query));
+        postsMetrics.recordPostsPerResponse(posts.getPostCount());
+        return posts;
+    }
+
+    /**
+     * The method to write one page of the posts of the tags to the response while they are merged,
+     * see getPosts(tags, sortBy, direction, offset, limit). The tags are fetched before this method returns,
+     * so the invalid parameters and the upstream errors are thrown here and not in the middle of the response.
+     * @param ndjson: true to write one post per line, false to write the same object as getPosts
+     * @return: A StreamingResponseBody writing the posts from their encoded JSON.
+     */
+    public StreamingResponseBody streamPosts(String tags, String sortBy, String direction, int offset, Integer limit,
+                                             boolean ndjson) {
+        return streamPosts(fetchDataHelper.parseQuery(tags, sortBy, direction, offset, limit), ndjson);
+    }
+
+    //To write the page of the posts asked by a parsed query while they are merged
+    public StreamingResponseBody streamPosts(PostsQuery query, boolean ndjson) {
+        List<TagPosts> lists = fetchPosts(query);
+        Timer timer = postsMetrics.getSerializeTimer(ndjson ? PostsMetrics.NDJSON : PostsMetrics.STREAM);
+        return out -> {
+            long start = System.nanoTime();
+            int count = ndjson ? fetchDataHelper.writeNdjson(lists, query, out) : fetchDataHelper.writeJson(lists, query, out);
+            //The time includes waiting for the client to take the bytes
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            postsMetrics.recordPostsPerResponse(count);
+        };
+    }
+
+    /**
+     * The method to answer several queries of /api/posts at once, see streamBatch(queries, ndjson)
+     * @param queries: the parameters of every query
+     * @return: the JSON {"results": [...]} with the result of every query in the order of the queries.
+     */
+    public byte[] getBatch(List<BatchQuery> queries) {
+        List<CompletableFuture<EncodedPosts>> results = fetchBatch(queries);
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try {
+            writeBatch(results, false, json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toByteArray();
+    }
+
+    /**
+     * The method to write the results of several queries of /api/posts in the order of the queries,
+     * each one as soon as it is ready. The tags of all the queries are fetched concurrently and only once
+     * for the batch, however many queries ask for them, so the queries read the same posts of a tag,
+     * and every query is merged on the fetch executor as soon as its own tags have arrived.
+     * The result of a query is the JSON of GET /api/posts, or {"error": "...", "status": 400}
+     * when the query is invalid or its tags cannot be fetched within the fetch timeout,
+     * so one failed query does not fail the others.
+     * @param queries: the parameters of every query
+     * @param ndjson: true to write one result per line, false to write {"results": [...]}
+     * @return: A StreamingResponseBody writing the results.
+     * @throws InvalidParameterException when there is no query or more than "hatchways.max-batch-queries"
+     */
+    public StreamingResponseBody streamBatch(List<BatchQuery> queries, boolean ndjson) {
+        List<CompletableFuture<EncodedPosts>> results = fetchBatch(queries);
+        return out -> writeBatch(results, ndjson, out);
+    }
+
+    //To start every query of the batch, sharing the fetch of a tag between the queries
+    @SuppressWarnings("unchecked")
+    private List<CompletableFuture<EncodedPosts>> fetchBatch(List<BatchQuery> queries) {
+        if (queries == null || queries.isEmpty()) throw new InvalidParameterException(QUERIES_ERROR);
+        if (queries.size() > maxBatchQueries) throw new InvalidParameterException(TOO_MANY_QUERIES_ERROR);
+        Map<String, CompletableFuture<TagPosts>> tagFutures = new HashMap<>();
+        List<CompletableFuture<EncodedPosts>> results = new ArrayList<>(queries.size());
+        for (BatchQuery batchQuery : queries) {
+            PostsQuery query;
+            try {
+                BatchQuery params = batchQuery != null ? batchQuery : new BatchQuery();
+                query = fetchDataHelper.parseQuery(params.getTags(), params.getSortBy(), params.getDirection(),
+                        params.getOffset(), params.getLimit());
+            } catch (InvalidParameterException e) {
+                results.add(CompletableFuture.failedFuture(e));
+                continue;
+            }
+            logger.debug("batch query is: {}", query);
+            String[] tags = query.getTags();
+            CompletableFuture<TagPosts>[] futures = new CompletableFuture[tags.length];
+            for (int i = 0; i < tags.length; i++) futures[i] = tagFutures.computeIfAbsent(tags[i], this::fetchTag);
+            results.add(CompletableFuture.allOf(futures)
+                    .thenApplyAsync(fetched -> {
+                        TagPosts[] lists = new TagPosts[futures.length];
+                        for (int i = 0; i < futures.length; i++) lists[i] = futures[i].join();
+                        return getEncodedPosts(query, Arrays.asList(lists));
+                    }, fetchExecutor)
+                    .orTimeout(fetchTimeout.toMillis(), TimeUnit.MILLISECONDS));
+        }
+        return results;
+    }
+
+    //To write the result of every query in order, waiting for each one in turn
+    private void writeBatch(List<CompletableFuture<EncodedPosts>> results, boolean ndjson, OutputStream out) throws IOException {
+        if (!ndjson) out.write(BATCH_START);
+        for (int i = 0; i < results.size(); i++) {
+            if (!ndjson && i > 0) out.write(',');
+            try {
+                out.write(results.get(i).join().getJson());
+            } catch (CompletionException e) {
+                writeError(e, out);
+            }
+            if (ndjson) {
+                out.write('\n');
+                out.flush();
+            }
         }
-        logger.info("tags are: " + tags);
-        if (sortBy != null && !fetchDataHelper.isSortField(sortBy)) {
-            throw new InvalidParameterException(fetchDataHelper.SORT_PARAM_ERROR);
+        if (!ndjson) out.write(BATCH_END);
+    }
+
+    //To write the error of a failed query the way ErrorHandler answers it, with its status
+    private void writeError(CompletionException failure, OutputStream out) throws IOException {
+        Throwable cause = failure;
+        while (cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+        if (cause instanceof TimeoutException) cause = new UpstreamTimeoutException(FETCH_TIMEOUT_ERROR);
+        HttpStatus status = ErrorHandler.statusOf(cause);
+        String error = cause.getMessage();
+        if (status == HttpStatus.INTERNAL_SERVER_ERROR) {
+            logger.warn("A query of the batch failed", cause);
+            error = status.getReasonPhrase();
+        }
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("error", error);
+            generator.writeNumberField("status", status.value());
+            generator.writeEndObject();
+        }
+    }
+
+    //To encode a page of the merged posts from the JSON of every post, timing the merge and the writing apart
+    private EncodedPosts encode(List<TagPosts> lists, PostsQuery query) {
+        FetchDataHelper.MergedPage page = postsMetrics.getMergeTimer().record(() -> fetchDataHelper.mergePage(lists, query));
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        try {
+            page.writeJson(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        postsMetrics.getSerializeTimer(PostsMetrics.JSON).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return EncodedPosts.of(json.toByteArray(), page.size());
+    }
+
+    //To get the posts of every tag of the query, which is logged only when debug is enabled
+    private List<TagPosts> fetchPosts(PostsQuery query) {
+        logger.debug("query is: {}", query);
+        return fetchAll(query.getTags());
+    }
+
+    //To fetch the posts of every tag concurrently, waiting for all of them within the fetch timeout
+    @SuppressWarnings("unchecked")
+    private List<TagPosts> fetchAll(String[] tagArray) {
+        CompletableFuture<TagPosts>[] futures = new CompletableFuture[tagArray.length];
+        for (int i = 0; i < tagArray.length; i++) {
+            futures[i] = fetchTag(tagArray[i]);
         }
-        logger.info("sortBy is: " + sortBy);
-        if (direction != null && !fetchDataHelper.isDirectionField(direction)) {
-            throw new InvalidParameterException(fetchDataHelper.DIRECT_PARAM_ERROR);
+        try {
+            CompletableFuture.allOf(futures).get(fetchTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            //The futures are shared with other requests of the same tags, so they are left running
+            throw new UpstreamTimeoutException(FETCH_TIMEOUT_ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamTimeoutException(FETCH_TIMEOUT_ERROR);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
         }
-        logger.info("direction is: " + direction);
 
-        tags = tags.trim();
-        String[] tagArray = tags.split(fetchDataHelper.COMMA_MARK);
-        List<PostsList> lists = new ArrayList<>();
-        for (String t : tagArray) {
-            lists.add(restTemplate.exchange(PRE_URL + t, HttpMethod.GET, null, PostsList.class).getBody());
+        TagPosts[] lists = new TagPosts[futures.length];
+        for (int i = 0; i < futures.length; i++) lists[i] = futures[i].join();
+        return Arrays.asList(lists);
+    }
+
+    //To get the future of a tag, joining the fetch already in flight for this tag if there is one
+    //A cached tag is returned completed, so it never waits behind the fetches queued on the executor
+    private CompletableFuture<TagPosts> fetchTag(String tag) {
+        TagPosts cached = getCachedPosts(tag);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        CompletableFuture<TagPosts> future = new CompletableFuture<>();
+        CompletableFuture<TagPosts> inFlight = inFlightTags.putIfAbsent(tag, future);
+        if (inFlight != null) return inFlight;
+
+        try {
+            fetchExecutor.execute(() -> {
+                try {
+                    future.complete(hatchApiClient.getPostsByTag(tag));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlightTags.remove(tag, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlightTags.remove(tag, future);
+            future.completeExceptionally(e);
         }
+        return future;
+    }
 
-        if (lists.size() == 1 && sortBy.equals(fetchDataHelper.ID) && direction.equals(fetchDataHelper.ASC)) return lists.get(0);
-        return fetchDataHelper.mergeAndSortPosts(lists, sortBy, direction);
+    //To look up a tag without loading it. The Caffeine entry is found through asMap(), which records no statistics,
+    //so a miss is only counted once by the load on the executor, and a hit is counted by getIfPresent,
+    //which also refreshes a stale entry in the background
+    @SuppressWarnings("unchecked")
+    private TagPosts getCachedPosts(String tag) {
+        if (tagPostsCache == null) return null;
+        Object nativeCache = tagPostsCache.getNativeCache();
+        if (nativeCache instanceof Cache) {
+            Cache<Object, Object> cache = (Cache<Object, Object>) nativeCache;
+            TagPosts posts = (TagPosts) cache.asMap().get(tag);
+            if (posts == null) return null;
+            TagPosts current = (TagPosts) cache.getIfPresent(tag);
+            return current != null ? current : posts;
+        }
+        org.springframework.cache.Cache.ValueWrapper cached = tagPostsCache.get(tag);
+        return cached == null ? null : (TagPosts) cached.get();
     }
 
     //To empty the cache
-    @CacheEvict(cacheNames = "PostsCache", allEntries = true)
+    @CacheEvict(cacheNames = HatchApiClient.TAG_POSTS_CACHE, allEntries = true)
     public void emptyCache() {
         logger.info("To empty the cache");
     }
 
-    //Scheduled task to empty the cache at midnight every day
-    @Scheduled(cron = "@midnight")
-    public void scheduledEmptyCache() {
-        emptyCache();
-    }
+    //The key of a cached page, the query and the versions of its tags in the order of the query tags,
+    //which are sorted and distinct, so the order and repetition of the requested tags do not matter
+    private static final class ResponseKey {
+        private final PostsQuery query;
+        private final long[] versions;
+
+        ResponseKey(PostsQuery query, List<TagPosts> lists) {
+            this.query = query;
+            this.versions = new long[lists.size()];
+            for (int i = 0; i < versions.length; i++) versions[i] = lists.get(i).getVersion();
+        }
 
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ResponseKey)) return false;
+            ResponseKey key = (ResponseKey) o;
+            return Arrays.equals(versions, key.versions) && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * query.hashCode() + Arrays.hashCode(versions);
+        }
+    }
 }
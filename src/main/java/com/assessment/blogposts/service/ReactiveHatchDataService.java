@@ -0,0 +1,197 @@
+package com.assessment.blogposts.service;
+
+import com.assessment.blogposts.config.HatchwaysProperties;
+import com.assessment.blogposts.exceptions.UpstreamTimeoutException;
+import com.assessment.blogposts.exceptions.UpstreamUnavailableException;
+import com.assessment.blogposts.model.PostsList;
+import com.assessment.blogposts.model.PostsQuery;
+import com.assessment.blogposts.model.TagPosts;
+import com.assessment.blogposts.util.FetchDataHelper;
+import com.assessment.blogposts.util.PostsMetrics;
+import com.assessment.blogposts.util.TagPostsReader;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * The non-blocking counterpart of HatchDataService, used when "blogposts.mode" is "reactive".
+ * The tags are fetched with WebClient, then merged and sorted without holding any thread while
+ * the external api answers, so a small event loop serves thousands of concurrent requests.
+ * The per-tag cache "TagPostsCache" is shared with the blocking path.
+ * The body of external api is collected as raw buffers, at most "hatchways.max-response-size",
+ * and parsed straight into TagPosts without building a PostsList.
+ * The calls go through the circuit breaker, the bulkhead and the retry budget of HatchApiClient, shared with the
+ * blocking path, and the posts of a tag put in the cache meanwhile are served when the call cannot be made or fails.
+ * The calls, the merge and the posts of the responses are recorded in PostsMetrics like the blocking path.
+ */
+@Service
+@ConditionalOnProperty(name = "blogposts.mode", havingValue = "reactive")
+public class ReactiveHatchDataService {
+
+    private final String PRE_URL;
+    private final String FETCH_TIMEOUT_ERROR = "upstream request timed out";
+    private final String UNAVAILABLE_ERROR = "upstream service is unavailable";
+    private FetchDataHelper fetchDataHelper;
+    private TagPostsReader tagPostsReader;
+    private int maxResponseSize;
+    private WebClient webClient;
+    private Cache tagPostsCache;
+    private Duration fetchTimeout;
+    private PostsMetrics postsMetrics;
+    private HatchApiClient hatchApiClient;
+    //The tags being fetched right now, the concurrent requests of the same tag share one Mono
+    private final ConcurrentMap<String, Mono<TagPosts>> inFlightTags = new ConcurrentHashMap<>();
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveHatchDataService.class);
+
+    public ReactiveHatchDataService(WebClient.Builder webClientBuilder,
+                                    CacheManager cacheManager,
+                                    HatchApiClient hatchApiClient,
+                                    HatchwaysProperties hatchwaysProperties,
+                                    PostsMetrics postsMetrics) {
+        this.maxResponseSize = (int) hatchwaysProperties.getMaxResponseSize().toBytes();
+        this.webClient = webClientBuilder
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(maxResponseSize))
+                .build();
+        this.PRE_URL = hatchwaysProperties.getBaseUrl() + HatchApiClient.TAG_PARAM;
+        this.tagPostsCache = cacheManager.getCache(HatchApiClient.TAG_POSTS_CACHE);
+        this.fetchTimeout = hatchwaysProperties.getFetchTimeout();
+        this.postsMetrics = postsMetrics;
+        this.hatchApiClient = hatchApiClient;
+        this.fetchDataHelper = new FetchDataHelper();
+        this.tagPostsReader = new TagPostsReader(hatchwaysProperties.getCache().isOffHeap());
+    }
+
+    /**
+     * The method to get posts of the tags without blocking, each tag is taken from the per-tag cache first
+     * And the tags not in the cache are fetched from external service and stored in cache.
+     * @param tags: tag of the post
+     * @param sortBy: the result will be ordered based on the "sortBy" field
+     * @param direction: the result will be sort in asc or desc order specified by "direction"
+     * @return: A Mono of the PostsList object contains the list of posts.
+     */
+    public Mono<PostsList> getPosts(String tags, String sortBy, String direction) {
+        return getPosts(tags, sortBy, direction, 0, null);
+    }
+
+    /**
+     * The method to get one page of the posts of the tags without blocking, see getPosts(tags, sortBy, direction)
+     * @param offset: the number of sorted posts to skip
+     * @param limit: the maximum number of posts to return, null for all the posts after the offset
+     * @return: A Mono of the PostsList object contains the page of posts.
+     */
+    public Mono<PostsList> getPosts(String tags, String sortBy, String direction, int offset, Integer limit) {
+        return Mono.defer(() -> {
+            PostsQuery query = fetchDataHelper.parseQuery(tags, sortBy, direction, offset, limit);
+            logger.debug("query is: {}", query);
+            return Flux.fromArray(query.getTags())
+                    .flatMapSequential(this::fetchTag)
+                    .collectList()
+                    .timeout(fetchTimeout, Mono.error(() -> new UpstreamTimeoutException(FETCH_TIMEOUT_ERROR)))
+                    .map(lists -> postsMetrics.getMergeTimer().record(() -> fetchDataHelper.mergeAndSortPosts(lists, query)))
+                    .doOnNext(posts -> postsMetrics.recordPostsPerResponse(posts.getPosts().size()));
+        });
+    }
+
+    //To get the posts of a tag from the cache, or join the fetch already in flight for this tag
+    private Mono<TagPosts> fetchTag(String tag) {
+        TagPosts cached = getCachedPosts(tag);
+        if (cached != null) return Mono.just(cached);
+        return inFlightTags.computeIfAbsent(tag, this::fetchFromUpstream);
+    }
+
+    //To fetch a tag from external service once, however many requests subscribe to it
+    @SuppressWarnings("unchecked")
+    private Mono<TagPosts> fetchFromUpstream(String tag) {
+        Mono<TagPosts>[] fetch = new Mono[1];
+        fetch[0] = Mono.defer(() -> {
+                    hatchApiClient.recordCall();
+                    long deadline = hatchApiClient.callDeadline();
+                    return callUpstream(tag).retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                        long backoff = hatchApiClient.retryBackoff(signal.failure(), (int) signal.totalRetries() + 1, deadline);
+                        return backoff < 0 ? Mono.error(signal.failure()) : Mono.delay(Duration.ofNanos(backoff));
+                    })));
+                })
+                .doOnNext(posts -> tagPostsCache.put(tag, posts))
+                .onErrorResume(e -> fallback(tag, e))
+                //Removed before the result reaches the subscribers, so a request made after it fetches again
+                .doOnTerminate(() -> inFlightTags.remove(tag, fetch[0]))
+                .cache();
+        return fetch[0];
+    }
+
+    //To call the external api once through the bulkhead and the circuit breaker, timing the call
+    private Mono<TagPosts> callUpstream(String tag) {
+        return Mono.defer(() -> {
+            Timer.Sample[] sample = new Timer.Sample[1];
+            return webClient.get()
+                    .uri(PRE_URL + tag)
+                    .retrieve()
+                    .bodyToFlux(DataBuffer.class)
+                    .as(body -> DataBufferUtils.join(body, maxResponseSize))
+                    .map(this::readTagPosts)
+                    .doOnSubscribe(subscription -> {
+                        logger.info("Fetching the posts of tag {} from external api", tag);
+                        sample[0] = postsMetrics.startUpstreamCall();
+                    })
+                    .doFinally(signal -> {
+                        if (sample[0] != null) postsMetrics.stopUpstreamCall(sample[0], tag, signal == SignalType.ON_COMPLETE);
+                    })
+                    .transformDeferred(BulkheadOperator.of(hatchApiClient.getBulkhead()))
+                    .transformDeferred(CircuitBreakerOperator.of(hatchApiClient.getCircuitBreaker()));
+        });
+    }
+
+    //To serve the posts of the tag put in the cache meanwhile when the call cannot be made or fails
+    private Mono<TagPosts> fallback(String tag, Throwable e) {
+        boolean unavailable = e instanceof CallNotPermittedException || e instanceof BulkheadFullException;
+        if (!unavailable && !HatchApiClient.isUpstreamFailure(e)) return Mono.error(e);
+        TagPosts cached = getCachedPosts(tag);
+        if (cached == null) return Mono.error(unavailable ? new UpstreamUnavailableException(UNAVAILABLE_ERROR, e) : e);
+        logger.warn("Serving the cached posts of tag {}: {}", tag, e.toString());
+        return Mono.just(cached);
+    }
+
+    //To parse the received body into the posts of a tag, releasing the buffer afterwards
+    private TagPosts readTagPosts(DataBuffer body) {
+        try (InputStream in = body.asInputStream(true)) {
+            return tagPostsReader.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //To look up a tag without loading it, since a loading cache would block on a miss
+    @SuppressWarnings("unchecked")
+    private TagPosts getCachedPosts(String tag) {
+        Object nativeCache = tagPostsCache.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache) {
+            return (TagPosts) ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache).getIfPresent(tag);
+        }
+        Cache.ValueWrapper cached = tagPostsCache.get(tag);
+        return cached == null ? null : (TagPosts) cached.get();
+    }
+}
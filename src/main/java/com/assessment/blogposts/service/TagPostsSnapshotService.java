@@ -0,0 +1,191 @@
+package com.assessment.blogposts.service;
+
+import com.assessment.blogposts.config.HatchwaysProperties;
+import com.assessment.blogposts.model.TagPosts;
+import com.assessment.blogposts.util.TagPostsSnapshot;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Policy;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * The service to save the tags of "TagPostsCache" to a local snapshot file and restore them at startup,
+ * so a restarted instance serves the tags it had without a burst of calls to the external api.
+ * It runs only when "hatchways.snapshot.path" is set. The tags are saved every "hatchways.snapshot.interval"
+ * when they changed, and at shutdown. At startup, the tags fetched less than "hatchways.snapshot.max-age" ago
+ * are put in the cache before any request is served, and the ones older than "hatchways.cache.refresh-after-write"
+ * are refreshed in the background right away while being served.
+ * A restored tag expires "hatchways.cache.expire-after-write" after it was fetched, not after it was restored,
+ * so a tag never gets younger by being restored and a tag with no life left is not restored at all.
+ * The time a tag was fetched comes from the expiry of the Caffeine entry, or the first save that saw it otherwise.
+ * A missing, damaged or unreadable snapshot only means a cold start.
+ */
+@Service
+@ConditionalOnProperty(name = "hatchways.snapshot.path")
+public class TagPostsSnapshotService {
+
+    private Cache tagPostsCache;
+    private TagPostsSnapshot tagPostsSnapshot;
+    private Path path;
+    private Duration maxAge;
+    private Duration expireAfterWrite;
+    private Duration refreshAfterWrite;
+    private Clock clock;
+    //The time every cached TagPosts was fetched by its version, when the cache does not know it
+    private final Map<Long, Long> fetchedAtByVersion = new ConcurrentHashMap<>();
+    //The versions of the tags in the last saved snapshot, to skip a save when nothing changed
+    private Set<Long> savedVersions = new HashSet<>();
+
+    private static final Logger logger = LoggerFactory.getLogger(TagPostsSnapshotService.class);
+
+    @Autowired
+    public TagPostsSnapshotService(CacheManager cacheManager, HatchwaysProperties hatchwaysProperties) {
+        this(cacheManager, hatchwaysProperties, Clock.systemUTC());
+    }
+
+    TagPostsSnapshotService(CacheManager cacheManager, HatchwaysProperties hatchwaysProperties, Clock clock) {
+        HatchwaysProperties.Snapshot snapshot = hatchwaysProperties.getSnapshot();
+        this.tagPostsCache = cacheManager.getCache(HatchApiClient.TAG_POSTS_CACHE);
+        this.tagPostsSnapshot = new TagPostsSnapshot(hatchwaysProperties.getCache().isOffHeap());
+        this.path = Paths.get(snapshot.getPath());
+        this.maxAge = snapshot.getMaxAge() != null ? snapshot.getMaxAge() : hatchwaysProperties.getCache().getExpireAfterWrite();
+        this.expireAfterWrite = hatchwaysProperties.getCache().getExpireAfterWrite();
+        this.refreshAfterWrite = hatchwaysProperties.getCache().getRefreshAfterWrite();
+        this.clock = clock;
+    }
+
+    /**
+     * The method to put the tags of the snapshot fetched less than max-age ago in the cache,
+     * each expiring when it would have expired had the instance not restarted
+     * @return: the number of restored tags.
+     */
+    @PostConstruct
+    public int restore() {
+        if (!Files.exists(path)) return 0;
+        Map<String, TagPostsSnapshot.Entry> entries;
+        try {
+            entries = tagPostsSnapshot.read(path);
+        } catch (IOException e) {
+            logger.warn("Cannot read the snapshot {}, starting with an empty cache: {}", path, e.toString());
+            return 0;
+        }
+        long now = clock.millis();
+        int restored = 0;
+        for (Map.Entry<String, TagPostsSnapshot.Entry> entry : entries.entrySet()) {
+            TagPosts posts = entry.getValue().getPosts();
+            long age = now - entry.getValue().getFetchedAt();
+            long remaining = expireAfterWrite.toMillis() - age;
+            if (age > maxAge.toMillis() || remaining <= 0) continue;
+            if (!putIfAbsent(entry.getKey(), posts, Duration.ofMillis(remaining))) continue;
+            fetchedAtByVersion.put(posts.getVersion(), entry.getValue().getFetchedAt());
+            savedVersions.add(posts.getVersion());
+            restored++;
+            if (refreshAfterWrite != null && age > refreshAfterWrite.toMillis()) refresh(entry.getKey());
+        }
+        logger.info("Restored {} of the {} tags of the snapshot {}", restored, entries.size(), path);
+        return restored;
+    }
+
+    /**
+     * The method to write the cached tags to the snapshot, unless they are the ones saved last time
+     * @return: true when the snapshot was written.
+     */
+    public synchronized boolean save() {
+        Map<?, ?> cached = cachedTags();
+        if (cached == null) return false;
+        long now = clock.millis();
+        Map<String, TagPostsSnapshot.Entry> entries = new LinkedHashMap<>();
+        Set<Long> versions = new HashSet<>();
+        for (Map.Entry<?, ?> entry : cached.entrySet()) {
+            if (!(entry.getKey() instanceof String) || !(entry.getValue() instanceof TagPosts)) continue;
+            String tag = (String) entry.getKey();
+            TagPosts posts = (TagPosts) entry.getValue();
+            entries.put(tag, new TagPostsSnapshot.Entry(posts, fetchedAt(tag, posts, now)));
+            versions.add(posts.getVersion());
+        }
+        //A refreshed or evicted tag is not cached anymore with its old version
+        fetchedAtByVersion.keySet().retainAll(versions);
+        if (versions.equals(savedVersions)) return false;
+        try {
+            tagPostsSnapshot.write(entries, path);
+        } catch (IOException e) {
+            logger.warn("Cannot write the snapshot {}: {}", path, e.toString());
+            return false;
+        }
+        savedVersions = versions;
+        logger.debug("Saved {} tags to the snapshot {}", entries.size(), path);
+        return true;
+    }
+
+    //To save the tags every "hatchways.snapshot.interval" and at shutdown
+    @Scheduled(fixedDelayString = "${hatchways.snapshot.interval:5m}", initialDelayString = "${hatchways.snapshot.interval:5m}")
+    @PreDestroy
+    public void saveSnapshot() {
+        save();
+    }
+
+    //To get the entries of the cache as a map, null for a cache that is neither Caffeine nor a map
+    private Map<?, ?> cachedTags() {
+        Object nativeCache = tagPostsCache.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache) {
+            return ((com.github.benmanes.caffeine.cache.Cache<?, ?>) nativeCache).asMap();
+        }
+        if (nativeCache instanceof Map) return (Map<?, ?>) nativeCache;
+        logger.warn("Cannot save the tags of a {} to the snapshot", nativeCache.getClass().getName());
+        return null;
+    }
+
+    //To put a restored tag in the cache unless it is there already, expiring after its remaining life when
+    //the cache has a variable expiry, see CacheConfig
+    private boolean putIfAbsent(String tag, TagPosts posts, Duration remaining) {
+        Optional<Policy.VarExpiration<Object, Object>> expiration = variableExpiration();
+        if (expiration.isPresent()) return expiration.get().putIfAbsent(tag, posts, remaining) == null;
+        return tagPostsCache.putIfAbsent(tag, posts) == null;
+    }
+
+    //To get the time the posts of the tag were fetched, from the remaining life of the Caffeine entry when known
+    private long fetchedAt(String tag, TagPosts posts, long now) {
+        Long known = fetchedAtByVersion.get(posts.getVersion());
+        if (known != null) return known;
+        Optional<Duration> remaining = variableExpiration().flatMap(expiration -> expiration.getExpiresAfter(tag));
+        if (remaining.isPresent()) return now - (expireAfterWrite.toMillis() - remaining.get().toMillis());
+        return fetchedAtByVersion.computeIfAbsent(posts.getVersion(), version -> now);
+    }
+
+    //The variable expiry of the Caffeine cache, empty for another cache
+    @SuppressWarnings("unchecked")
+    private Optional<Policy.VarExpiration<Object, Object>> variableExpiration() {
+        Object nativeCache = tagPostsCache.getNativeCache();
+        if (!(nativeCache instanceof com.github.benmanes.caffeine.cache.Cache)) return Optional.empty();
+        return ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache).policy().expireVariably();
+    }
+
+    //To fetch the tag again in the background while the restored posts are served
+    @SuppressWarnings("unchecked")
+    private void refresh(String tag) {
+        Object nativeCache = tagPostsCache.getNativeCache();
+        if (nativeCache instanceof LoadingCache) ((LoadingCache<Object, Object>) nativeCache).refresh(tag);
+    }
+}
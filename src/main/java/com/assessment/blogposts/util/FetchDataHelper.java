@@ -1,17 +1,23 @@
 package com.assessment.blogposts.util;
 
+import com.assessment.blogposts.exceptions.InvalidParameterException;
+import com.assessment.blogposts.model.Direction;
 import com.assessment.blogposts.model.Post;
 import com.assessment.blogposts.model.PostsList;
+import com.assessment.blogposts.model.PostsQuery;
+import com.assessment.blogposts.model.SortField;
+import com.assessment.blogposts.model.TagPosts;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.PriorityQueue;
 
 public class FetchDataHelper {
     public static final String ID = "id";
@@ -24,68 +30,309 @@ public class FetchDataHelper {
     public static final String TAGS_PARAM_ERROR = "tags parameter is required";
     public static final String SORT_PARAM_ERROR = "sortBy parameter is invalid";
     public static final String DIRECT_PARAM_ERROR = "direction parameter is invalid";
-    private final Set<String> SORT_FIELDS = Stream.of(ID, READS, LIKES, POPULARITY)
-            .collect(Collectors.toCollection(HashSet::new));
-    private final Set<String> DIRECT_FIELDS = Stream.of(ASC, DESC)
-            .collect(Collectors.toCollection(HashSet::new));
+    public static final String OFFSET_PARAM_ERROR = "offset parameter is invalid";
+    public static final String LIMIT_PARAM_ERROR = "limit parameter is invalid";
+    private static final byte[] JSON_START = "{\"posts\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] JSON_END = "]}".getBytes(StandardCharsets.UTF_8);
 
     //To check the "sortBy" field is valid or not.
     public boolean isSortField(String sortBy) {
-        return SORT_FIELDS.contains(sortBy);
+        return SortField.fromParam(sortBy) != null;
     }
 
     //To check the "direction" field is valid or not.
     public boolean isDirectionField(String direction) {
-        return DIRECT_FIELDS.contains(direction);
-    }
-
-    //To merge and sort the lists of posts
-    public PostsList mergeAndSortPosts(List<PostsList> lists, String sortBy, String direction) {
-        if (lists.size() == 1) return sortPosts(lists.get(0).getPosts(), sortBy, direction);
-        return sortPosts(mergePosts(lists), sortBy, direction);
-    }
-
-    //To sort the posts based on "sortBy" field in "asc" or "desc" order indicated by direction
-    private PostsList sortPosts(List<Post> posts, String sortBy, String direction) {
-        if (sortBy.equals(ID)) {
-            Comparator<Post> compareById =
-                    (Post p1, Post p2) -> Long.compare(p1.getId(), p2.getId());
-            if (direction.equals(ASC)) posts.sort(compareById);
-            else posts.sort(compareById.reversed());
-        }
-        if (sortBy.equals(READS)) {
-            Comparator<Post> compareByReads =
-                    (Post p1, Post p2) -> Long.compare(p1.getReads(), p2.getReads());
-            if (direction.equals(ASC)) posts.sort(compareByReads);
-            else posts.sort(compareByReads.reversed());
-        }
-        if (sortBy.equals(LIKES)) {
-            Comparator<Post> compareByLikes =
-                    (Post p1, Post p2) -> Long.compare(p1.getLikes(), p2.getLikes());
-            if (direction.equals(ASC)) posts.sort(compareByLikes);
-            else posts.sort(compareByLikes.reversed());
-        }
-        if (sortBy.equals(POPULARITY)) {
-            Comparator<Post> compareByPopularity =
-                    (Post p1, Post p2) -> Float.compare(p1.getPopularity(), p2.getPopularity());
-            if (direction.equals(ASC)) posts.sort(compareByPopularity);
-            else posts.sort(compareByPopularity.reversed());
-        }
-
-        PostsList sortedList = new PostsList();
-        sortedList.setPosts(posts);
-        return sortedList;
-    }
-
-    //To merge the posts list without duplicates
-    private List<Post> mergePosts(List<PostsList> lists) {
-        Map<Long, Post> map = new HashMap<>();
-        for (PostsList list : lists) {
-            List<Post> posts = list.getPosts();
-            for (Post post : posts) {
-                map.putIfAbsent(post.getId(), post);
+        return Direction.fromParam(direction) != null;
+    }
+
+    //To validate the request parameters, throwing InvalidParameterException for the first invalid one
+    public void validateParams(String tags, String sortBy, String direction) {
+        if (tags == null || tags.length() == 0) {
+            throw new InvalidParameterException(TAGS_PARAM_ERROR);
+        }
+        if (sortBy != null && !isSortField(sortBy)) {
+            throw new InvalidParameterException(SORT_PARAM_ERROR);
+        }
+        if (direction != null && !isDirectionField(direction)) {
+            throw new InvalidParameterException(DIRECT_PARAM_ERROR);
+        }
+    }
+
+    //To validate the paging parameters, a null limit means all the posts after the offset
+    public void validatePage(int offset, Integer limit) {
+        if (offset < 0) {
+            throw new InvalidParameterException(OFFSET_PARAM_ERROR);
+        }
+        if (limit != null && limit < 0) {
+            throw new InvalidParameterException(LIMIT_PARAM_ERROR);
+        }
+    }
+
+    /**
+     * To parse and validate the request parameters once into a PostsQuery, the null "sortBy" and "direction"
+     * are "id" and "asc". The tags are trimmed, sorted and deduplicated, the empty ones are left out.
+     * Nothing but the query and the tags themselves is allocated, a single tag is kept as the parameter itself.
+     * @throws InvalidParameterException for the first invalid parameter
+     */
+    public PostsQuery parseQuery(String tags, String sortBy, String direction, int offset, Integer limit) {
+        validateParams(tags, sortBy, direction);
+        validatePage(offset, limit);
+        String[] tagArray = parseTags(tags);
+        if (tagArray.length == 0) {
+            throw new InvalidParameterException(TAGS_PARAM_ERROR);
+        }
+        return new PostsQuery(tagArray,
+                sortBy == null ? SortField.ID : SortField.fromParam(sortBy),
+                direction == null ? Direction.ASC : Direction.fromParam(direction),
+                offset, limit);
+    }
+
+    //To split the "tags" parameter at the commas without a regex, then sort the tags and drop the repeated ones
+    private String[] parseTags(String tags) {
+        int count = 1;
+        for (int i = tags.indexOf(','); i >= 0; i = tags.indexOf(',', i + 1)) count++;
+        String[] tagArray = new String[count];
+        count = 0;
+        int start = 0;
+        while (start <= tags.length()) {
+            int end = tags.indexOf(',', start);
+            if (end < 0) end = tags.length();
+            String tag = tags.substring(start, end).trim();
+            if (!tag.isEmpty()) tagArray[count++] = tag;
+            start = end + 1;
+        }
+        if (count > 1) Arrays.sort(tagArray, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || !tagArray[i].equals(tagArray[distinct - 1])) tagArray[distinct++] = tagArray[i];
+        }
+        return distinct == tagArray.length ? tagArray : Arrays.copyOf(tagArray, distinct);
+    }
+
+    /**
+     * To merge and sort the posts of the tags without duplicates.
+     * Every tag is already sorted by each field, so one tag is returned as a read-only view of its order
+     * and several sorted tags are merged through a heap holding the next post of every tag,
+     * in O(n log k) for n posts of k tags.
+     * The merge compares and dedupes on the primitive columns of the tags,
+     * a Post object is only created for a post which goes into the result.
+     * The tags are immutable snapshots shared through the cache, they are never copied or modified.
+     * Only the page asked by the query is kept, skipping "offset" posts and keeping at most "limit" posts.
+     * The merge stops as soon as the page is full, so the top "limit" posts of k tags cost
+     * O((offset + limit) log k) however many posts the tags have.
+     */
+    public PostsList mergeAndSortPosts(List<TagPosts> lists, PostsQuery query) {
+        return mergeAndSortPosts(lists, query.getSortBy(), query.isAscending(), query.getOffset(), query.getLimit());
+    }
+
+    private PostsList mergeAndSortPosts(List<TagPosts> lists, SortField field, boolean ascending, int offset, Integer limit) {
+        if (lists.size() == 1) {
+            List<Post> sorted = lists.get(0).sortedView(field, ascending);
+            int from = Math.min(offset, sorted.size());
+            int to = limit == null ? sorted.size() : (int) Math.min((long) from + limit, sorted.size());
+            return toPostsList(sorted.subList(from, to));
+        }
+        List<Post> posts = new ArrayList<>();
+        try {
+            forEachMergedPost(lists, field, ascending, offset, limit, (tagPosts, index) -> posts.add(tagPosts.getPost(index)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return toPostsList(Collections.unmodifiableList(posts));
+    }
+
+    /**
+     * To write the page of the merged and sorted posts asked by the query as {"posts":[...]}, each post is written
+     * from its encoded JSON as soon as the merge reaches it, so nothing is collected before writing.
+     * @return: the number of posts written.
+     */
+    public int writeJson(List<TagPosts> lists, PostsQuery query, OutputStream out) throws IOException {
+        return writeJson(lists, query.getSortBy(), query.isAscending(), query.getOffset(), query.getLimit(), out);
+    }
+
+    private int writeJson(List<TagPosts> lists, SortField field, boolean ascending, int offset, Integer limit,
+                          OutputStream out) throws IOException {
+        out.write(JSON_START);
+        boolean[] first = {true};
+        int count = forEachMergedPost(lists, field, ascending, offset, limit, (tagPosts, index) -> {
+            if (!first[0]) out.write(',');
+            first[0] = false;
+            tagPosts.writeJson(index, out);
+        });
+        out.write(JSON_END);
+        return count;
+    }
+
+    /**
+     * To merge the page of the posts asked by the query without writing it, keeping the tag and the index of every post,
+     * so the merge and the writing of a response can be timed apart.
+     * @return: the MergedPage to write as {"posts":[...]}.
+     */
+    public MergedPage mergePage(List<TagPosts> lists, PostsQuery query) {
+        MergedPage page = new MergedPage();
+        try {
+            forEachMergedPost(lists, query.getSortBy(), query.isAscending(), query.getOffset(), query.getLimit(), page::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return page;
+    }
+
+    //To write the page of the merged and sorted posts asked by the query as newline delimited JSON, one post per line,
+    //returning the number of posts written
+    public int writeNdjson(List<TagPosts> lists, PostsQuery query, OutputStream out) throws IOException {
+        return writeNdjson(lists, query.getSortBy(), query.isAscending(), query.getOffset(), query.getLimit(), out);
+    }
+
+    private int writeNdjson(List<TagPosts> lists, SortField field, boolean ascending, int offset, Integer limit,
+                            OutputStream out) throws IOException {
+        return forEachMergedPost(lists, field, ascending, offset, limit, (tagPosts, index) -> {
+            tagPosts.writeJson(index, out);
+            out.write('\n');
+        });
+    }
+
+    /**
+     * To hand the posts of one page to the consumer in the merged and sorted order, without duplicates.
+     * The merge stops as soon as the page is full.
+     * @return: the number of posts handed to the consumer.
+     */
+    private int forEachMergedPost(List<TagPosts> lists, SortField field, boolean ascending, int offset, Integer limit,
+                                  MergedPostConsumer consumer) throws IOException {
+        if (lists.size() == 1) {
+            TagPosts tagPosts = lists.get(0);
+            int size = tagPosts.size();
+            int from = Math.min(offset, size);
+            int to = limit == null ? size : (int) Math.min((long) from + limit, size);
+            for (int i = from; i < to; i++) consumer.accept(tagPosts, tagPosts.getOrdered(field, ascending ? i : size - 1 - i));
+            return to - from;
+        }
+        return mergePosts(lists, field, ascending, offset, limit, consumer);
+    }
+
+    /**
+     * To merge the sorted orders of the tags without duplicates, until the page is full.
+     * A post of several tags is stored once in the shared PostTable, so its copies compare equal
+     * and come out of the merge one after another: a post with the id of the one before is skipped.
+     * A post fetched with other values for another tag is not next to its other versions,
+     * it is only taken from the first of the tags holding its id, found by a binary search of their id orders.
+     * So no set of the merged ids is built for a request.
+     */
+    private int mergePosts(List<TagPosts> lists, SortField field, boolean ascending, int offset, Integer limit,
+                            MergedPostConsumer consumer) throws IOException {
+        int total = 0;
+        for (TagPosts list : lists) total += list.size();
+        int end = limit == null ? total : (int) Math.min((long) offset + limit, total);
+        if (offset >= end) return 0;
+        Comparator<TagCursor> byHead = ascending
+                ? (c1, c2) -> field.compare(c1.tagPosts, c1.head(), c2.tagPosts, c2.head())
+                : (c1, c2) -> field.compare(c2.tagPosts, c2.head(), c1.tagPosts, c1.head());
+        PriorityQueue<TagCursor> heap = new PriorityQueue<>(lists.size(), byHead);
+        for (int i = 0; i < lists.size(); i++) {
+            TagCursor cursor = new TagCursor(lists.get(i), i, field, ascending);
+            if (cursor.hasHead()) heap.add(cursor);
+        }
+
+        int merged = 0;
+        boolean first = true;
+        long previousId = 0;
+        while (!heap.isEmpty() && merged < end) {
+            TagCursor cursor = heap.poll();
+            int head = cursor.head();
+            long id = cursor.tagPosts.getId(head);
+            boolean duplicate = cursor.tagPosts.hasOtherVersions(head)
+                    ? inEarlierTag(lists, cursor.position, id)
+                    : !first && id == previousId;
+            if (!duplicate && merged++ >= offset) consumer.accept(cursor.tagPosts, head);
+            first = false;
+            previousId = id;
+            cursor.advance();
+            if (cursor.hasHead()) heap.add(cursor);
+        }
+        return Math.max(0, merged - offset);
+    }
+
+    //To tell if one of the tags before this position of the list holds the id
+    private boolean inEarlierTag(List<TagPosts> lists, int position, long id) {
+        for (int i = 0; i < position; i++) {
+            if (lists.get(i).indexOf(id) >= 0) return true;
+        }
+        return false;
+    }
+
+    private PostsList toPostsList(List<Post> posts) {
+        PostsList postsList = new PostsList();
+        postsList.setPosts(posts);
+        return postsList;
+    }
+
+    //The position in the sorted order of one tag while merging, moving forwards or backwards for the direction
+    private static class TagCursor {
+        private final TagPosts tagPosts;
+        //The position of the tag in the merged list
+        private final int position;
+        private final SortField field;
+        private final int step;
+        private int index;
+        private int head;
+
+        TagCursor(TagPosts tagPosts, int position, SortField field, boolean ascending) {
+            this.tagPosts = tagPosts;
+            this.position = position;
+            this.field = field;
+            this.step = ascending ? 1 : -1;
+            this.index = ascending ? 0 : tagPosts.size() - 1;
+            if (hasHead()) head = tagPosts.getOrdered(field, index);
+        }
+
+        boolean hasHead() {
+            return index >= 0 && index < tagPosts.size();
+        }
+
+        //The index of the current post in the tag
+        int head() {
+            return head;
+        }
+
+        void advance() {
+            index += step;
+            if (hasHead()) head = tagPosts.getOrdered(field, index);
+        }
+    }
+
+    //The posts of a merged page in order, as the tags and the indexes they are stored at
+    public static class MergedPage {
+        private TagPosts[] tagPosts = new TagPosts[16];
+        private int[] indexes = new int[16];
+        private int size;
+
+        private void add(TagPosts posts, int index) {
+            if (size == indexes.length) {
+                tagPosts = Arrays.copyOf(tagPosts, size * 2);
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            tagPosts[size] = posts;
+            indexes[size++] = index;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        //To write the page as {"posts":[...]} from the encoded JSON of every post
+        public void writeJson(OutputStream out) throws IOException {
+            out.write(JSON_START);
+            for (int i = 0; i < size; i++) {
+                if (i > 0) out.write(',');
+                tagPosts[i].writeJson(indexes[i], out);
             }
+            out.write(JSON_END);
         }
-        return new ArrayList<>(map.values());
+    }
+
+    //To take a merged post, the post at the index of the tag
+    @FunctionalInterface
+    public interface MergedPostConsumer {
+        void accept(TagPosts tagPosts, int index) throws IOException;
     }
 }
@@ -0,0 +1,48 @@
+package com.assessment.blogposts.util;
+
+
+/**
+ * To sort the indexes of a table by comparing the rows behind them,
+ * so the sorted order is kept as an int[] permutation without boxing the indexes.
+ * It is a stable merge sort.
+ */
+public class IndexSorter {
+
+    //To compare the rows at two indexes
+    @FunctionalInterface
+    public interface IndexComparator {
+        int compare(int i, int j);
+    }
+
+    //To get the indexes 0 to size - 1 sorted by the comparator
+    public static int[] sortedIndexes(int size, IndexComparator comparator) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) indexes[i] = i;
+        sort(indexes, comparator);
+        return indexes;
+    }
+
+    //To sort the indexes in place by the comparator
+    public static void sort(int[] indexes, IndexComparator comparator) {
+        if (indexes.length < 2) return;
+        int[] buffer = indexes.clone();
+        mergeSort(buffer, indexes, 0, indexes.length, comparator);
+    }
+
+    //To sort source[from, to) into target[from, to), both arrays start with the same content
+    private static void mergeSort(int[] source, int[] target, int from, int to, IndexComparator comparator) {
+        if (to - from < 2) return;
+        int middle = (from + to) >>> 1;
+        mergeSort(target, source, from, middle, comparator);
+        mergeSort(target, source, middle, to, comparator);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.compare(source[left], source[right]) <= 0)) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.assessment.blogposts.util;
+
+import java.util.Arrays;
+
+
+/**
+ * A set of primitive long values with open addressing, sized for the expected number of values.
+ * It keeps the ids seen while merging without boxing them or allocating an entry per id,
+ * and doubles its table when it is half full.
+ */
+public class LongHashSet {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private long[] slots;
+    private int mask;
+    private int size;
+    private boolean containsEmpty;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+        this.slots = new long[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(slots, EMPTY);
+    }
+
+    //To add the value, returning false if the value was already in the set
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmpty) return false;
+            containsEmpty = true;
+            return true;
+        }
+        int index = hash(value) & mask;
+        while (slots[index] != EMPTY) {
+            if (slots[index] == value) return false;
+            index = (index + 1) & mask;
+        }
+        slots[index] = value;
+        if (++size * 2 > slots.length) grow();
+        return true;
+    }
+
+    //To move the values into a table twice as large
+    private void grow() {
+        long[] oldSlots = slots;
+        slots = new long[oldSlots.length * 2];
+        mask = slots.length - 1;
+        Arrays.fill(slots, EMPTY);
+        for (long value : oldSlots) {
+            if (value == EMPTY) continue;
+            int index = hash(value) & mask;
+            while (slots[index] != EMPTY) index = (index + 1) & mask;
+            slots[index] = value;
+        }
+    }
+
+    private static int hash(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
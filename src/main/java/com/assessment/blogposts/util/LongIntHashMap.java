@@ -0,0 +1,106 @@
+package com.assessment.blogposts.util;
+
+import java.util.Arrays;
+
+
+/**
+ * A map of primitive long keys to int values with open addressing, the counterpart of LongHashSet
+ * for the indexes which also remove keys. A removed key is not left as a tombstone,
+ * the keys after it are shifted back, so the lookups never get slower with removals.
+ * It is not thread safe.
+ */
+public class LongIntHashMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private boolean containsEmpty;
+    private int emptyValue;
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public int size() {
+        return size + (containsEmpty ? 1 : 0);
+    }
+
+    //To get the value of the key, or "missing" when the key is not in the map
+    public int get(long key, int missing) {
+        if (key == EMPTY) return containsEmpty ? emptyValue : missing;
+        for (int index = hash(key) & mask; keys[index] != EMPTY; index = (index + 1) & mask) {
+            if (keys[index] == key) return values[index];
+        }
+        return missing;
+    }
+
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            containsEmpty = true;
+            emptyValue = value;
+            return;
+        }
+        int index = hash(key) & mask;
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size * 2 > keys.length) grow();
+    }
+
+    public void remove(long key) {
+        if (key == EMPTY) {
+            containsEmpty = false;
+            return;
+        }
+        int index = hash(key) & mask;
+        while (keys[index] != key) {
+            if (keys[index] == EMPTY) return;
+            index = (index + 1) & mask;
+        }
+        //To move back every following key which would not be found anymore behind the hole
+        int hole = index;
+        for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    //To move the entries into a table twice as large
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int index = hash(oldKeys[i]) & mask;
+            while (keys[index] != EMPTY) index = (index + 1) & mask;
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,110 @@
+package com.assessment.blogposts.util;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+
+/**
+ * The meters of the request hot path, published under /actuator/metrics and /actuator/prometheus:
+ * the latency of the external api by tag, the calls to it in flight, the merge of the tags,
+ * the time to write a response and the number of posts in it.
+ * The meters without a per-call tag are registered once, so recording them costs no lookup.
+ * The number of "tag" values is bounded by "hatchways.metrics.max-tags", see MetricsConfig.
+ */
+public class PostsMetrics {
+    public static final String UPSTREAM_REQUESTS = "blogposts.upstream.requests";
+    public static final String UPSTREAM_IN_FLIGHT = "blogposts.upstream.in.flight";
+    public static final String MERGE = "blogposts.posts.merge";
+    public static final String SERIALIZE = "blogposts.posts.serialize";
+    public static final String POSTS_PER_RESPONSE = "blogposts.posts.per.response";
+    public static final String TAG = "tag";
+    public static final String OUTCOME = "outcome";
+    public static final String FORMAT = "format";
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+    public static final String JSON = "json";
+    public static final String NDJSON = "ndjson";
+    public static final String STREAM = "stream";
+
+    private final MeterRegistry registry;
+    private final AtomicInteger inFlightCalls = new AtomicInteger();
+    private final Timer mergeTimer;
+    private final Timer jsonTimer;
+    private final Timer ndjsonTimer;
+    private final Timer streamTimer;
+    private final DistributionSummary postsPerResponse;
+
+    public PostsMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        registry.gauge(UPSTREAM_IN_FLIGHT, inFlightCalls);
+        this.mergeTimer = Timer.builder(MERGE)
+                .description("The time to merge and sort the posts of the tags into a page")
+                .register(registry);
+        this.jsonTimer = serializeTimer(JSON);
+        this.ndjsonTimer = serializeTimer(NDJSON);
+        this.streamTimer = serializeTimer(STREAM);
+        this.postsPerResponse = DistributionSummary.builder(POSTS_PER_RESPONSE)
+                .description("The number of posts in a response of /api/posts")
+                .baseUnit("posts")
+                .register(registry);
+    }
+
+    //To time a call to the external api for the tag, counting it as in flight until it returns
+    public <T> T recordUpstreamCall(String tag, Supplier<T> call) {
+        Timer.Sample sample = startUpstreamCall();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } finally {
+            stopUpstreamCall(sample, tag, success);
+        }
+    }
+
+    //To start timing a call to the external api, for a call which does not return on the calling thread
+    public Timer.Sample startUpstreamCall() {
+        inFlightCalls.incrementAndGet();
+        return Timer.start(registry);
+    }
+
+    //To stop timing a call to the external api started by startUpstreamCall
+    public void stopUpstreamCall(Timer.Sample sample, String tag, boolean success) {
+        inFlightCalls.decrementAndGet();
+        sample.stop(Timer.builder(UPSTREAM_REQUESTS)
+                .description("The latency of the external api by tag")
+                .tag(TAG, tag)
+                .tag(OUTCOME, success ? SUCCESS : ERROR)
+                .register(registry));
+    }
+
+    //The number of calls to the external api waiting for their response
+    public int getInFlightCalls() {
+        return inFlightCalls.get();
+    }
+
+    public Timer getMergeTimer() {
+        return mergeTimer;
+    }
+
+    //The timer of writing a response in the format, "json" for the cached encoding of /api/posts
+    public Timer getSerializeTimer(String format) {
+        if (NDJSON.equals(format)) return ndjsonTimer;
+        return STREAM.equals(format) ? streamTimer : jsonTimer;
+    }
+
+    public void recordPostsPerResponse(int count) {
+        postsPerResponse.record(count);
+    }
+
+    private Timer serializeTimer(String format) {
+        return Timer.builder(SERIALIZE)
+                .description("The time to write the posts of a response, with their merge for the streamed formats")
+                .tag(FORMAT, format)
+                .register(registry);
+    }
+}
@@ -0,0 +1,31 @@
+package com.assessment.blogposts.util;
+
+
+/**
+ * A token bucket limiting the retries to a share of the calls, so retrying never multiplies the load
+ * on an external api which is already failing. Every call adds "ratio" of a token up to "maxTokens",
+ * every retry takes a whole token, and a retry without a token left is not made.
+ */
+public class RetryBudget {
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    public RetryBudget(double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    //To add the share of a retry earned by one call
+    public synchronized void recordCall() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    //To take the token of one retry, returning false when the budget is spent
+    public synchronized boolean tryRetry() {
+        if (tokens < 1) return false;
+        tokens -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,134 @@
+package com.assessment.blogposts.util;
+
+import com.assessment.blogposts.model.TagPosts;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * To read the response of external api, {"posts": [{"id": 1, "author": "...", ...}, ...]},
+ * token by token from the stream into the columns of TagPosts, while the body is still arriving.
+ * No PostsList, Post or tree of the body is built, only the strings of authors and tags are created,
+ * and the unknown fields are skipped.
+ */
+public class TagPostsReader {
+    private static final String POSTS = "posts";
+    private static final String ID = "id";
+    private static final String AUTHOR = "author";
+    private static final String AUTHOR_ID = "authorId";
+    private static final String LIKES = "likes";
+    private static final String POPULARITY = "popularity";
+    private static final String READS = "reads";
+    private static final String TAGS = "tags";
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final boolean offHeap;
+
+    public TagPostsReader() {
+        this(false);
+    }
+
+    //To read the posts into TagPosts kept outside the heap when "offHeap" is true
+    public TagPostsReader(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * The method to read the posts of one tag from the body of the response
+     * @param body: the body of the response, it is not closed here
+     * @return: A TagPosts object contains the posts of the body, empty if the body is empty.
+     */
+    public TagPosts read(InputStream body) throws IOException {
+        return read(body, null);
+    }
+
+    /**
+     * The method to read the refreshed posts of one tag, the sorted orders are updated from the previous posts
+     * @param body: the body of the response, it is not closed here
+     * @param previous: the posts of the tag before the refresh, null if the tag was not fetched before
+     * @return: A TagPosts object contains the posts of the body, empty if the body is empty.
+     */
+    public TagPosts read(InputStream body, TagPosts previous) throws IOException {
+        TagPosts.Builder builder = TagPosts.builder(offHeap);
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return builder.build(previous);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                JsonToken value = parser.nextToken();
+                if (POSTS.equals(parser.currentName()) && value == JsonToken.START_ARRAY) {
+                    readPosts(parser, builder);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return builder.build(previous);
+    }
+
+    //To read the array of posts, the parser is on its START_ARRAY
+    private void readPosts(JsonParser parser, TagPosts.Builder builder) throws IOException {
+        List<String> tags = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            long id = 0, authorId = 0, likes = 0, reads = 0;
+            float popularity = 0;
+            String author = null;
+            tags.clear();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case ID:
+                        id = parser.getValueAsLong();
+                        break;
+                    case AUTHOR:
+                        author = parser.getValueAsString();
+                        break;
+                    case AUTHOR_ID:
+                        authorId = parser.getValueAsLong();
+                        break;
+                    case LIKES:
+                        likes = parser.getValueAsLong();
+                        break;
+                    case POPULARITY:
+                        popularity = (float) parser.getValueAsDouble();
+                        break;
+                    case READS:
+                        reads = parser.getValueAsLong();
+                        break;
+                    case TAGS:
+                        if (value == JsonToken.START_ARRAY) {
+                            readTags(parser, tags);
+                        } else {
+                            parser.skipChildren();
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            builder.add(id, author, authorId, likes, popularity, reads, tags);
+        }
+    }
+
+    //To read the array of tags of a post, the null and non-text values are left out
+    private void readTags(JsonParser parser, List<String> tags) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_STRING) {
+                tags.add(parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
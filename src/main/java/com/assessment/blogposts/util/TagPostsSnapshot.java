@@ -0,0 +1,197 @@
+package com.assessment.blogposts.util;
+
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.model.TagPosts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+
+/**
+ * To write the cached posts of the tags to a local file and read them back, for a warm restart.
+ * The file is a length-prefixed binary of every tag, its fetch time and its posts column by column.
+ * An author or a tag is written once and then referred to by its index, and the file ends with a CRC32,
+ * so a truncated or corrupted file is rejected as a whole.
+ * The file is written next to the target and moved over it, so a reader never sees half a snapshot.
+ */
+public class TagPostsSnapshot {
+    private static final int MAGIC = 0x42505353;
+    private static final int FORMAT_VERSION = 1;
+    private static final int NEW_STRING = -1;
+    private static final int NULL = -2;
+
+    private final boolean offHeap;
+
+    public TagPostsSnapshot() {
+        this(false);
+    }
+
+    //To read the posts into TagPosts kept outside the heap when "offHeap" is true
+    public TagPostsSnapshot(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * The method to write the posts of the tags to the file, replacing it
+     * @param entries: the posts of every tag with the time they were fetched
+     */
+    public void write(Map<String, Entry> entries, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream fileOut = Files.newOutputStream(temp)) {
+                CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fileOut), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                writeEntries(entries, out);
+                out.flush();
+                out.writeLong(checked.getChecksum().getValue());
+                out.flush();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * The method to read the posts of the tags written by write()
+     * @return: the posts of every tag with the time they were fetched, in the order they were written.
+     * @throws IOException if the file is not a snapshot of this format or is damaged
+     */
+    public Map<String, Entry> read(Path file) throws IOException {
+        try (InputStream fileIn = Files.newInputStream(file)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(fileIn), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            Map<String, Entry> entries;
+            try {
+                entries = readEntries(in);
+            } catch (RuntimeException e) {
+                //A damaged count or string index, the checksum is only read at the end
+                throw new IOException("damaged snapshot", e);
+            }
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum) throw new IOException("snapshot checksum mismatch");
+            return entries;
+        }
+    }
+
+    private void writeEntries(Map<String, Entry> entries, DataOutputStream out) throws IOException {
+        Map<String, Integer> strings = new HashMap<>();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            TagPosts posts = entry.getValue().getPosts();
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue().getFetchedAt());
+            out.writeInt(posts.size());
+            for (int i = 0; i < posts.size(); i++) {
+                Post post = posts.getPost(i);
+                out.writeLong(post.getId());
+                writeString(post.getAuthor(), out, strings);
+                out.writeLong(post.getAuthorId());
+                out.writeLong(post.getLikes());
+                out.writeFloat(post.getPopularity());
+                out.writeLong(post.getReads());
+                List<String> tags = post.getTags();
+                out.writeInt(tags == null ? NULL : tags.size());
+                if (tags != null) {
+                    for (String tag : tags) writeString(tag, out, strings);
+                }
+            }
+        }
+    }
+
+    private Map<String, Entry> readEntries(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) throw new IOException("not a snapshot of this format");
+        List<String> strings = new ArrayList<>();
+        int count = in.readInt();
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (int t = 0; t < count; t++) {
+            String tag = in.readUTF();
+            long fetchedAt = in.readLong();
+            int size = in.readInt();
+            TagPosts.Builder builder = TagPosts.builder(offHeap);
+            for (int i = 0; i < size; i++) {
+                long id = in.readLong();
+                String author = readString(in, strings);
+                long authorId = in.readLong();
+                long likes = in.readLong();
+                float popularity = in.readFloat();
+                long reads = in.readLong();
+                int tagCount = in.readInt();
+                List<String> tags = null;
+                if (tagCount != NULL) {
+                    tags = new ArrayList<>(Math.min(tagCount, 16));
+                    for (int j = 0; j < tagCount; j++) tags.add(readString(in, strings));
+                }
+                builder.add(id, author, authorId, likes, popularity, reads, tags);
+            }
+            entries.put(tag, new Entry(builder.build(), fetchedAt));
+        }
+        return entries;
+    }
+
+    //To write a string the first time, and only its index afterwards
+    private void writeString(String value, DataOutputStream out, Map<String, Integer> strings) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            out.writeInt(index);
+            return;
+        }
+        strings.put(value, strings.size());
+        out.writeInt(NEW_STRING);
+        out.writeUTF(value);
+    }
+
+    private String readString(DataInputStream in, List<String> strings) throws IOException {
+        int index = in.readInt();
+        if (index == NULL) return null;
+        if (index != NEW_STRING) return strings.get(index);
+        String value = in.readUTF();
+        strings.add(value);
+        return value;
+    }
+
+    /**
+     * The posts of a tag in the snapshot, with the time in milliseconds since the epoch they were fetched.
+     */
+    public static class Entry {
+        private final TagPosts posts;
+        private final long fetchedAt;
+
+        public Entry(TagPosts posts, long fetchedAt) {
+            this.posts = posts;
+            this.fetchedAt = fetchedAt;
+        }
+
+        public TagPosts getPosts() {
+            return posts;
+        }
+
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+    }
+}
@@ -1,13 +1,35 @@
 package com.assessment.blogposts;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
 @SpringBootTest
 class BlogpostsApplicationTests {
 
+	@Autowired
+	MeterRegistry meterRegistry;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void connectionPoolMetricsAreRegistered() {
+		assertEquals(64, meterRegistry.get("httpcomponents.httpclient.pool.total.max")
+				.tag("httpclient", "hatchways").gauge().value());
+	}
+
+	@Test
+	void cacheAndPostsMetricsAreRegistered() {
+		assertNotNull(meterRegistry.get("cache.gets").tag("cache", "TagPostsCache").functionCounter());
+		assertNotNull(meterRegistry.get("cache.gets").tag("cache", "EncodedPostsCache").functionCounter());
+		assertNotNull(meterRegistry.get("blogposts.posts.merge").timer());
+		assertNotNull(meterRegistry.get("blogposts.upstream.in.flight").gauge());
+	}
+
 }
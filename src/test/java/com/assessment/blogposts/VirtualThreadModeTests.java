@@ -0,0 +1,47 @@
+package com.assessment.blogposts;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadModeTests {
+
+	@Autowired
+	@Qualifier("applicationTaskExecutor")
+	Executor fetchExecutor;
+
+	@Autowired
+	ServletWebServerApplicationContext context;
+
+	@Autowired
+	TestRestTemplate restTemplate;
+
+	@Test
+	void fetchesRunOnVirtualThreads() throws Exception {
+		boolean virtual = CompletableFuture.supplyAsync(() -> Thread.currentThread().isVirtual(), fetchExecutor).get();
+		assertTrue(virtual);
+	}
+
+	@Test
+	void requestsRunOnVirtualThreads() throws Exception {
+		Executor requestExecutor = ((TomcatWebServer) context.getWebServer()).getTomcat()
+				.getConnector().getProtocolHandler().getExecutor();
+		boolean virtual = CompletableFuture.supplyAsync(() -> Thread.currentThread().isVirtual(), requestExecutor).get();
+		assertTrue(virtual);
+		assertEquals(true, restTemplate.getForObject("/api/ping", Map.class).get("success"));
+	}
+}
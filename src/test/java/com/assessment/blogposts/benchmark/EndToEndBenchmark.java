@@ -0,0 +1,127 @@
+package com.assessment.blogposts.benchmark;
+
+import com.assessment.blogposts.BlogpostsApplication;
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.model.PostsList;
+import com.assessment.blogposts.support.HatchwaysStub;
+import com.assessment.blogposts.support.PostsGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The throughput of /api/posts through the embedded server, the whole request path from the socket to the socket,
+ * with the application calling HatchwaysStub on a local port as the external api.
+ * The tags are fetched once during the warmup, so the benchmarks measure the service and not the upstream:
+ * "cachedQuery" repeats a query answered from the response cache,
+ * "mixedQueries" goes round the tags, sort fields, directions and pages,
+ * and "streamQuery" merges and writes the posts on every request with "stream=true".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class EndToEndBenchmark {
+    private static final int TAG_COUNT = 10;
+    private static final int POSTS_PER_TAG = 1000;
+    private static final String[] SORT_FIELDS = {"id", "reads", "likes", "popularity"};
+    private static final String[] DIRECTIONS = {"asc", "desc"};
+
+    HatchwaysStub hatchwaysStub;
+    ConfigurableApplicationContext context;
+    HttpClient httpClient;
+    String postsUrl;
+    URI cachedUri;
+    URI streamUri;
+    URI[] mixedUris;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        hatchwaysStub = HatchwaysStub.start();
+        String[] tags = PostsGenerator.tagNames(TAG_COUNT);
+        List<PostsList> lists = new PostsGenerator(42).tagLists(TAG_COUNT, POSTS_PER_TAG, 0.2);
+        for (int i = 0; i < TAG_COUNT; i++) {
+            hatchwaysStub.setPosts(tags[i], lists.get(i).getPosts().toArray(new Post[0]));
+        }
+        //As arguments, which take precedence over application.properties
+        context = new SpringApplicationBuilder(BlogpostsApplication.class)
+                .run("--server.port=0", "--hatchways.base-url=" + hatchwaysStub.getBaseUrl(),
+                        "--logging.level.root=warn");
+        postsUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/posts";
+        httpClient = HttpClient.newHttpClient();
+
+        cachedUri = URI.create(postsUrl + "?tags=tag0,tag1&sortBy=likes&direction=desc");
+        streamUri = URI.create(postsUrl + "?tags=tag0,tag1,tag2&sortBy=popularity&limit=100&stream=true");
+        mixedUris = new URI[TAG_COUNT * SORT_FIELDS.length * DIRECTIONS.length];
+        int i = 0;
+        for (int t = 0; t < TAG_COUNT; t++) {
+            for (String sortBy : SORT_FIELDS) {
+                for (String direction : DIRECTIONS) {
+                    mixedUris[i] = URI.create(postsUrl + "?tags=" + tags[t] + "," + tags[(t + 1) % TAG_COUNT]
+                            + "&sortBy=" + sortBy + "&direction=" + direction + "&offset=" + (i % 5) * 20 + "&limit=20");
+                    i++;
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        hatchwaysStub.close();
+    }
+
+    //The position of a benchmark thread in the mixed queries
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public int cachedQuery() throws Exception {
+        return get(cachedUri);
+    }
+
+    @Benchmark
+    public int mixedQueries(Cursor cursor) throws Exception {
+        URI uri = mixedUris[cursor.next];
+        cursor.next = (cursor.next + 1) % mixedUris.length;
+        return get(uri);
+    }
+
+    @Benchmark
+    public int streamQuery() throws Exception {
+        return get(streamUri);
+    }
+
+    private int get(URI uri) throws Exception {
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(uri).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) throw new IllegalStateException("status " + response.statusCode());
+        return response.body().length;
+    }
+}
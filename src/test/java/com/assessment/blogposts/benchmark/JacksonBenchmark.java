@@ -0,0 +1,65 @@
+package com.assessment.blogposts.benchmark;
+
+import com.assessment.blogposts.model.PostsList;
+import com.assessment.blogposts.model.TagPosts;
+import com.assessment.blogposts.support.PostsGenerator;
+import com.assessment.blogposts.util.TagPostsReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The Jackson (de)serialization of a PostsList, the body of external api and of /api/posts,
+ * against reading the same body token by token into TagPosts with TagPostsReader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonBenchmark {
+
+    @Param({"100", "10000"})
+    public int postsCount;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    TagPostsReader tagPostsReader = new TagPostsReader();
+    PostsList postsList;
+    byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        postsList = new PostsGenerator(42).tagLists(1, postsCount, 0).get(0);
+        json = objectMapper.writeValueAsBytes(postsList);
+    }
+
+    @Benchmark
+    public byte[] serializePostsList() throws IOException {
+        return objectMapper.writeValueAsBytes(postsList);
+    }
+
+    @Benchmark
+    public PostsList deserializePostsList() throws IOException {
+        return objectMapper.readValue(json, PostsList.class);
+    }
+
+    @Benchmark
+    public TagPosts readTagPosts() throws IOException {
+        return tagPostsReader.read(new ByteArrayInputStream(json));
+    }
+}
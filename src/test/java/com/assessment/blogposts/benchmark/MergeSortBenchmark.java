@@ -0,0 +1,118 @@
+package com.assessment.blogposts.benchmark;
+
+import com.assessment.blogposts.model.PostsList;
+import com.assessment.blogposts.model.PostsQuery;
+import com.assessment.blogposts.model.TagPosts;
+import com.assessment.blogposts.support.PostsGenerator;
+import com.assessment.blogposts.util.FetchDataHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The merge and sort of FetchDataHelper across the number of tags, the posts per tag, the share of posts
+ * the tags have in common, the sort field, the direction, and the posts kept on or off the heap.
+ * "sortTag" is the sort paid once per fetched tag, building the orders of TagPosts,
+ * "mergeAll" and "mergePage" merge the cached tags into all the posts or a page of 20 as a PostsList,
+ * and "writeJson" merges and writes the posts from their encoded JSON like a cache miss of /api/posts.
+ * The full matrix takes a while, narrow it with -p, for example -Djmh.args="-p tagCount=3 -p sortBy=likes".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeSortBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1", "3", "10"})
+    public int tagCount;
+
+    @Param({"100", "10000"})
+    public int postsPerTag;
+
+    @Param({"0.0", "0.5"})
+    public double overlap;
+
+    @Param({"id", "reads", "likes", "popularity"})
+    public String sortBy;
+
+    @Param({"asc", "desc"})
+    public String direction;
+
+    @Param({"false", "true"})
+    public boolean offHeap;
+
+    FetchDataHelper fetchDataHelper = new FetchDataHelper();
+    List<PostsList> postsLists;
+    List<TagPosts> tagPosts;
+    PostsQuery all;
+    PostsQuery page;
+
+    @Setup
+    public void setup() {
+        postsLists = new PostsGenerator(42).tagLists(tagCount, postsPerTag, overlap);
+        tagPosts = new ArrayList<>(tagCount);
+        for (PostsList postsList : postsLists) tagPosts.add(TagPosts.of(postsList, offHeap));
+        String tags = String.join(",", PostsGenerator.tagNames(tagCount));
+        all = fetchDataHelper.parseQuery(tags, sortBy, direction, 0, null);
+        page = fetchDataHelper.parseQuery(tags, sortBy, direction, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public TagPosts sortTag() {
+        return TagPosts.of(postsLists.get(0), offHeap);
+    }
+
+    @Benchmark
+    public PostsList mergeAll() {
+        return fetchDataHelper.mergeAndSortPosts(tagPosts, all);
+    }
+
+    @Benchmark
+    public PostsList mergePage() {
+        return fetchDataHelper.mergeAndSortPosts(tagPosts, page);
+    }
+
+    @Benchmark
+    public int writeJson(Blackhole blackhole) throws IOException {
+        return fetchDataHelper.writeJson(tagPosts, all, new BlackholeOutputStream(blackhole));
+    }
+
+    //The output stream handing every byte to the blackhole, so the writing is not optimized away
+    static class BlackholeOutputStream extends OutputStream {
+        private final Blackhole blackhole;
+
+        BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+            blackhole.consume(len);
+        }
+    }
+}
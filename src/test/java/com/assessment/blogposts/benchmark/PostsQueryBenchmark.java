@@ -0,0 +1,69 @@
+package com.assessment.blogposts.benchmark;
+
+import com.assessment.blogposts.model.PostsQuery;
+import com.assessment.blogposts.util.FetchDataHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * The cost of turning the request parameters into a query and its cache key, before any tag is fetched.
+ * "legacy" is the former path: HashSet lookups of the parameters, a regex split of the tags,
+ * three INFO log lines built by string concatenation and a String cache key.
+ * "parsed" is FetchDataHelper.parseQuery with the debug log line skipped.
+ * Run with -Djmh.args="-prof gc" to compare the bytes allocated per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostsQueryBenchmark {
+    private static final Set<String> SORT_FIELDS = Stream.of("id", "reads", "likes", "popularity")
+            .collect(Collectors.toCollection(HashSet::new));
+    private static final Set<String> DIRECT_FIELDS = Stream.of("asc", "desc")
+            .collect(Collectors.toCollection(HashSet::new));
+
+    @Param({"tech", "tech,history,science,health"})
+    public String tags;
+
+    FetchDataHelper fetchDataHelper = new FetchDataHelper();
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        String sortBy = "likes";
+        String direction = "desc";
+        if (!SORT_FIELDS.contains(sortBy) || !DIRECT_FIELDS.contains(direction)) throw new IllegalArgumentException();
+        blackhole.consume("tags are: " + tags);
+        blackhole.consume("sortBy is: " + sortBy);
+        blackhole.consume("direction is: " + direction);
+        String[] tagArray = tags.trim().split(",");
+        blackhole.consume(tagArray);
+        blackhole.consume(new StringBuilder()
+                .append(sortBy).append(':').append(direction).append(':').append(0).append(':').append((Integer) null)
+                .toString());
+    }
+
+    @Benchmark
+    public void parsed(Blackhole blackhole) {
+        PostsQuery query = fetchDataHelper.parseQuery(tags, "likes", "desc", 0, null);
+        blackhole.consume(query.hashCode());
+        blackhole.consume(query);
+    }
+}
@@ -0,0 +1,81 @@
+package com.assessment.blogposts.config;
+
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.model.PostsList;
+import com.assessment.blogposts.model.TagPosts;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheConfigTests {
+
+    private TagPosts tagPosts(int size) {
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            posts.add(new Post(i, "Hatways", i, i, 0.5f, i, Collections.singletonList("tech")));
+        }
+        PostsList postsList = new PostsList();
+        postsList.setPosts(posts);
+        return TagPosts.of(postsList);
+    }
+
+    @Test
+    public void weighByNumberOfPosts() {
+        assertEquals(3, CacheConfig.weigh("tech", tagPosts(3)));
+        assertEquals(1, CacheConfig.weigh("tech", tagPosts(0)));
+        assertEquals(1, CacheConfig.weigh("tech", TagPosts.of(new PostsList())));
+    }
+
+    @Test
+    public void evictWhenMaximumPostsExceeded() {
+        HatchwaysProperties hatchwaysProperties = new HatchwaysProperties();
+        hatchwaysProperties.getCache().setMaximumPosts(10);
+        Cache<Object, Object> cache = new CacheConfig().caffeine(hatchwaysProperties, Runnable::run)
+                .build(tag -> tagPosts(0));
+
+        cache.put("tech", tagPosts(6));
+        cache.put("history", tagPosts(6));
+        cache.cleanUp();
+
+        assertEquals(1, cache.estimatedSize());
+        assertEquals(1, cache.stats().evictionCount());
+        assertTrue(cache.policy().eviction().get().weightedSize().getAsLong() <= 10);
+    }
+
+    @Test
+    public void serveStaleEntryWhileRefreshing() {
+        HatchwaysProperties hatchwaysProperties = new HatchwaysProperties();
+        hatchwaysProperties.getCache().setRefreshAfterWrite(Duration.ofMinutes(10));
+        AtomicLong nanos = new AtomicLong();
+        AtomicInteger loads = new AtomicInteger();
+        Ticker ticker = nanos::get;
+        Queue<Runnable> backgroundTasks = new ConcurrentLinkedQueue<>();
+        LoadingCache<Object, Object> cache = new CacheConfig().caffeine(hatchwaysProperties, backgroundTasks::add)
+                .ticker(ticker)
+                .build(tag -> tagPosts(loads.incrementAndGet()));
+
+        TagPosts first = (TagPosts) cache.get("tech");
+        nanos.addAndGet(Duration.ofMinutes(11).toNanos());
+
+        assertEquals(first, cache.get("tech"));
+        assertEquals(first, cache.get("tech"));
+        assertEquals(1, loads.get());
+
+        while (!backgroundTasks.isEmpty()) backgroundTasks.poll().run();
+        assertEquals(2, loads.get());
+        assertEquals(2, ((TagPosts) cache.get("tech")).size());
+    }
+}
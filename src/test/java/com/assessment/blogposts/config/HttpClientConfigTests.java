@@ -0,0 +1,89 @@
+package com.assessment.blogposts.config;
+
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.service.HatchApiClient;
+import com.assessment.blogposts.support.HatchwaysStub;
+import com.assessment.blogposts.util.PostsMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HttpClientConfigTests {
+    private static final String TECH = "tech";
+
+    HatchwaysStub hatchwaysStub;
+    HatchwaysProperties hatchwaysProperties;
+    HttpClientConfig httpClientConfig = new HttpClientConfig();
+    PostsMetrics postsMetrics = new PostsMetrics(new SimpleMeterRegistry());
+
+    @BeforeEach
+    public void init() throws Exception {
+        hatchwaysStub = HatchwaysStub.start();
+        hatchwaysStub.setPosts(TECH,
+                new Post(1, "Hatways1", 1, 200, 0.5f, 900, Arrays.asList(TECH)),
+                new Post(2, "Hatways2", 2, 100, 0.7f, 800, Arrays.asList(TECH)));
+        hatchwaysProperties = new HatchwaysProperties();
+        hatchwaysProperties.setBaseUrl(hatchwaysStub.getBaseUrl());
+    }
+
+    @AfterEach
+    public void destroy() {
+        hatchwaysStub.close();
+    }
+
+    private HatchApiClient hatchApiClient(ClientHttpRequestFactory requestFactory) {
+        return new HatchApiClient(new RestTemplateBuilder(
+                httpClientConfig.hatchwaysRestTemplateCustomizer(requestFactory, hatchwaysProperties)), hatchwaysProperties, postsMetrics);
+    }
+
+    @Test
+    public void reusePooledConnectionWithGzip() throws Exception {
+        try (PoolingHttpClientConnectionManager connectionManager = httpClientConfig.hatchwaysConnectionManager(hatchwaysProperties)) {
+            HatchApiClient hatchApiClient = hatchApiClient(
+                    httpClientConfig.hatchwaysRequestFactory(connectionManager, hatchwaysProperties));
+
+            assertEquals(2, hatchApiClient.fetchPostsByTag(TECH).size());
+            assertEquals(2, hatchApiClient.fetchPostsByTag(TECH).size());
+
+            assertEquals(1, hatchwaysStub.getConnectionCount());
+            assertEquals(2, hatchwaysStub.getGzipResponseCount());
+            assertEquals(1, connectionManager.getTotalStats().getAvailable());
+            assertEquals(0, connectionManager.getTotalStats().getLeased());
+        }
+    }
+
+    @Test
+    public void giveUpOnSlowResponse() throws Exception {
+        hatchwaysProperties.getClient().setReadTimeout(Duration.ofMillis(200));
+        hatchwaysProperties.getResilience().setMaxAttempts(1);
+        hatchwaysStub.setLatency(Duration.ofSeconds(2));
+        try (PoolingHttpClientConnectionManager connectionManager = httpClientConfig.hatchwaysConnectionManager(hatchwaysProperties)) {
+            HatchApiClient hatchApiClient = hatchApiClient(
+                    httpClientConfig.hatchwaysRequestFactory(connectionManager, hatchwaysProperties));
+
+            long start = System.nanoTime();
+            assertThrows(ResourceAccessException.class, () -> hatchApiClient.fetchPostsByTag(TECH));
+            assertEquals(0, (System.nanoTime() - start) / 1_000_000_000);
+        }
+    }
+
+    @Test
+    public void fetchWithHttp2Client() {
+        hatchwaysProperties.getClient().setHttp2(true);
+        HatchApiClient hatchApiClient = hatchApiClient(httpClientConfig.hatchwaysHttp2RequestFactory(hatchwaysProperties));
+
+        assertEquals(2, hatchApiClient.fetchPostsByTag(TECH).size());
+        assertEquals(1, hatchwaysStub.getGzipResponseCount());
+    }
+}
@@ -1,23 +1,39 @@
 package com.assessment.blogposts.controller;
 
 import com.assessment.blogposts.exceptions.InvalidParameterException;
+import com.assessment.blogposts.model.EncodedPosts;
 import com.assessment.blogposts.model.Post;
 import com.assessment.blogposts.model.PostsList;
 import com.assessment.blogposts.service.HatchDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.Matchers;
+import org.mockito.Mockito;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -37,6 +53,9 @@ public class PostControllerIntegrationTest {
 
     private static final String TAGS_PARAM_ERROR = "tags parameter is required";
     private static final String SORT_PARAM_ERROR = "sortBy parameter is invalid";
+    private static final String LIMIT_PARAM_ERROR = "limit parameter is invalid";
+    private static final String BODY_ERROR = "request body is invalid";
+    private static final String BATCH = "[{\"tags\":\"tech\"},{\"tags\":\"culture\",\"sortBy\":\"likes\",\"direction\":\"desc\",\"limit\":1}]";
 
     private static final long ID1 = 1;
     private static final long ID2 = 2;
@@ -66,10 +85,15 @@ public class PostControllerIntegrationTest {
     @Autowired
     private MockMvc mockMvc;
 
-    @MockBean
+    @MockitoBean
     private HatchDataService hatchDataServiceMock;
 
 
+    //To encode the posts as the service does
+    private EncodedPosts encoded(PostsList postsList) throws Exception {
+        return EncodedPosts.of(new ObjectMapper().writeValueAsBytes(postsList), postsList.getPosts().size());
+    }
+
     @Test
     public void getPingResult() throws Exception {
         mockMvc.perform(get("/api/ping"))
@@ -86,8 +110,8 @@ public class PostControllerIntegrationTest {
         postsListMock.setPosts(new ArrayList<Post>(Arrays.asList(p1, p2, p3)));
 
         when(hatchDataServiceMock.
-                getPosts(TECH, ID_FIELD, ASC))
-                .thenReturn(postsListMock);
+                getEncodedPosts(TECH, ID_FIELD, ASC, 0, null))
+                .thenReturn(encoded(postsListMock));
         mockMvc.perform(get("/api/posts?tags=tech"))
                 .andExpect(status().isOk())
                 .andDo(print())
@@ -101,7 +125,7 @@ public class PostControllerIntegrationTest {
                 .andExpect(jsonPath("$.posts[1].likes").value(LIKES2))
                 .andExpect(jsonPath("$.posts[2].popularity").value(POPULARITY3));
 
-        verify(hatchDataServiceMock).getPosts(TECH, ID_FIELD, ASC);
+        verify(hatchDataServiceMock).getEncodedPosts(TECH, ID_FIELD, ASC, 0, null);
     }
     @Test
     public void getPostsWithCultureLikesDesc() throws Exception {
@@ -111,8 +135,8 @@ public class PostControllerIntegrationTest {
         postsListMock.setPosts(new ArrayList<Post>(Arrays.asList(p3, p1)));
 
         when(hatchDataServiceMock.
-                getPosts(CULTURE,LIKES_FIELD, DESC))
-                .thenReturn(postsListMock);
+                getEncodedPosts(CULTURE, LIKES_FIELD, DESC, 0, null))
+                .thenReturn(encoded(postsListMock));
         mockMvc.perform(get("/api/posts?tags=culture&sortBy=likes&direction=desc"))
                 .andExpect(status().isOk())
                 .andDo(print())
@@ -124,20 +148,20 @@ public class PostControllerIntegrationTest {
                 .andExpect(jsonPath("$.posts[0].likes").value(LIKES3))
                 .andExpect(jsonPath("$.posts[1].likes").value(LIKES1));
 
-        verify(hatchDataServiceMock).getPosts(CULTURE, LIKES_FIELD, DESC);
+        verify(hatchDataServiceMock).getEncodedPosts(CULTURE, LIKES_FIELD, DESC, 0, null);
     }
 
     @Test
     public void getPostsWithEmptyTags() throws Exception {
         InvalidParameterException ex = new InvalidParameterException(TAGS_PARAM_ERROR);
         when(hatchDataServiceMock.
-                getPosts("", ID_FIELD, ASC))
+                getEncodedPosts("", ID_FIELD, ASC, 0, null))
                 .thenThrow(ex);
         mockMvc.perform(get("/api/posts?tags="))
                 .andDo(print())
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value(TAGS_PARAM_ERROR));
-        verify(hatchDataServiceMock).getPosts("", ID_FIELD, ASC);
+        verify(hatchDataServiceMock).getEncodedPosts("", ID_FIELD, ASC, 0, null);
     }
 
     @Test
@@ -152,12 +176,161 @@ public class PostControllerIntegrationTest {
     public void getPostsWithInvalidSortBy() throws Exception {
         InvalidParameterException ex = new InvalidParameterException(SORT_PARAM_ERROR);
         when(hatchDataServiceMock.
-                getPosts(TECH, "invalid", ASC))
+                getEncodedPosts(TECH, "invalid", ASC, 0, null))
                 .thenThrow(ex);
         mockMvc.perform(get("/api/posts?tags=tech&sortBy=invalid&direction=asc"))
                 .andDo(print())
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value(SORT_PARAM_ERROR));
-        verify(hatchDataServiceMock).getPosts(TECH, "invalid", ASC);
+        verify(hatchDataServiceMock).getEncodedPosts(TECH, "invalid", ASC, 0, null);
+    }
+
+    @Test
+    public void getPostsWithPage() throws Exception {
+        PostsList postsListMock = new PostsList();
+        Post p2 = new Post(ID2, AUTHOR2, AUTHOR_ID2, LIKES2, POPULARITY2, READS2, TAGS2);
+        postsListMock.setPosts(new ArrayList<Post>(Arrays.asList(p2)));
+
+        when(hatchDataServiceMock.
+                getEncodedPosts(TECH, LIKES_FIELD, DESC, 1, 1))
+                .thenReturn(encoded(postsListMock));
+        mockMvc.perform(get("/api/posts?tags=tech&sortBy=likes&direction=desc&offset=1&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts.length()").value(1))
+                .andExpect(jsonPath("$.posts[0].id").value(ID2));
+        verify(hatchDataServiceMock).getEncodedPosts(TECH, LIKES_FIELD, DESC, 1, 1);
+    }
+
+    @Test
+    public void getPostsWithInvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/posts?tags=tech&limit=ten"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(LIMIT_PARAM_ERROR));
+    }
+
+    @Test
+    public void getPostsAsNdjson() throws Exception {
+        StreamingResponseBody body = out -> out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+        when(hatchDataServiceMock.
+                streamPosts(TECH, LIKES_FIELD, DESC, 0, null, true))
+                .thenReturn(body);
+        mockMvc.perform(get("/api/posts?tags=tech&sortBy=likes&direction=desc")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+        verify(hatchDataServiceMock).streamPosts(TECH, LIKES_FIELD, DESC, 0, null, true);
+    }
+
+    @Test
+    public void getPostsAsStream() throws Exception {
+        StreamingResponseBody body = out -> out.write("{\"posts\":[{\"id\":1},{\"id\":2}]}".getBytes(StandardCharsets.UTF_8));
+        when(hatchDataServiceMock.
+                streamPosts(TECH, ID_FIELD, ASC, 0, 2, false))
+                .thenReturn(body);
+        mockMvc.perform(get("/api/posts?tags=tech&limit=2&stream=true"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.posts[0].id").value(ID1))
+                .andExpect(jsonPath("$.posts[1].id").value(ID2));
+        verify(hatchDataServiceMock).streamPosts(TECH, ID_FIELD, ASC, 0, 2, false);
+    }
+
+    @Test
+    public void getPostsAsNdjsonWithInvalidSortBy() throws Exception {
+        when(hatchDataServiceMock.
+                streamPosts(TECH, "invalid", ASC, 0, null, true))
+                .thenThrow(new InvalidParameterException(SORT_PARAM_ERROR));
+        mockMvc.perform(get("/api/posts?tags=tech&sortBy=invalid")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(SORT_PARAM_ERROR));
+    }
+
+    @Test
+    public void getPostsNotModified() throws Exception {
+        PostsList postsListMock = new PostsList();
+        postsListMock.setPosts(new ArrayList<Post>(Arrays.asList(
+                new Post(ID1, AUTHOR1, AUTHOR_ID1, LIKES1, POPULARITY1, READS1, TAGS1))));
+        EncodedPosts encodedPosts = encoded(postsListMock);
+        when(hatchDataServiceMock.
+                getEncodedPosts(TECH, ID_FIELD, ASC, 0, null))
+                .thenReturn(encodedPosts);
+
+        mockMvc.perform(get("/api/posts?tags=tech"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, encodedPosts.getEtag()));
+        mockMvc.perform(get("/api/posts?tags=tech").header(HttpHeaders.IF_NONE_MATCH, encodedPosts.getEtag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(get("/api/posts?tags=tech").header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void getPostsCompressed() throws Exception {
+        PostsList postsListMock = new PostsList();
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) posts.add(new Post(i, AUTHOR1, AUTHOR_ID1, LIKES1, POPULARITY1, READS1, TAGS1));
+        postsListMock.setPosts(posts);
+        EncodedPosts encodedPosts = encoded(postsListMock);
+        when(hatchDataServiceMock.
+                getEncodedPosts(TECH, ID_FIELD, ASC, 0, null))
+                .thenReturn(encodedPosts);
+
+        byte[] body = mockMvc.perform(get("/api/posts?tags=tech").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, encodedPosts.getGzipEtag()))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertArrayEquals(encodedPosts.getJson(), in.readAllBytes());
+        }
+        mockMvc.perform(get("/api/posts?tags=tech").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().bytes(encodedPosts.getJson()));
+        mockMvc.perform(get("/api/posts?tags=tech").header(HttpHeaders.ACCEPT_ENCODING, "deflate, GZIP ; Q=0.000"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        mockMvc.perform(get("/api/posts?tags=tech").header(HttpHeaders.ACCEPT_ENCODING, "br;q=1, *;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+    }
+
+    @Test
+    public void getPostsBatch() throws Exception {
+        when(hatchDataServiceMock.getBatch(anyList()))
+                .thenReturn("{\"results\":[{\"posts\":[{\"id\":1}]},{\"error\":\"upstream request timed out\",\"status\":504}]}"
+                        .getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(post("/api/posts/batch").contentType(MediaType.APPLICATION_JSON).content(BATCH))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.results[0].posts[0].id").value(ID1))
+                .andExpect(jsonPath("$.results[1].status").value(504));
+        verify(hatchDataServiceMock).getBatch(Mockito.argThat(queries -> queries.size() == 2
+                && TECH.equals(queries.get(0).getTags()) && ID_FIELD.equals(queries.get(0).getSortBy())
+                && LIKES_FIELD.equals(queries.get(1).getSortBy()) && queries.get(1).getLimit() == 1));
+    }
+
+    @Test
+    public void getPostsBatchAsNdjson() throws Exception {
+        StreamingResponseBody body = out -> out.write("{\"posts\":[{\"id\":1}]}\n{\"posts\":[]}\n".getBytes(StandardCharsets.UTF_8));
+        when(hatchDataServiceMock.streamBatch(anyList(), eq(true))).thenReturn(body);
+        mockMvc.perform(post("/api/posts/batch").contentType(MediaType.APPLICATION_JSON).content(BATCH)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"posts\":[{\"id\":1}]}\n{\"posts\":[]}\n"));
+    }
+
+    @Test
+    public void getPostsBatchWithInvalidBody() throws Exception {
+        mockMvc.perform(post("/api/posts/batch").contentType(MediaType.APPLICATION_JSON).content("{\"tags\":"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(BODY_ERROR));
     }
 }
@@ -1,13 +1,17 @@
 package com.assessment.blogposts.controller;
 
 import com.assessment.blogposts.exceptions.InvalidParameterException;
+import com.assessment.blogposts.model.EncodedPosts;
 import com.assessment.blogposts.model.PingResponse;
 import com.assessment.blogposts.model.Post;
 import com.assessment.blogposts.model.PostsList;
 import com.assessment.blogposts.service.HatchDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -59,6 +63,7 @@ public class PostControllerUnitTests {
     private static final List<String> TAGS3 =
             new ArrayList<>(Arrays.asList(TECH,STARTUPS, CULTURE));
 
+    ObjectMapper objectMapper = new ObjectMapper();
     PostController postController;
     HatchDataService hatchDataServiceMock;
 
@@ -75,7 +80,7 @@ public class PostControllerUnitTests {
     }
 
     @Test
-    public void getPostsWithTechIdAsc() {
+    public void getPostsWithTechIdAsc() throws Exception {
         PostsList postsListMock = new PostsList();
         Post p1 = new Post(ID1, AUTHOR1, AUTHOR_ID1, LIKES1, POPULARITY1, READS1, TAGS1);
         Post p2 = new Post(ID2, AUTHOR2, AUTHOR_ID2, LIKES2, POPULARITY2, READS2, TAGS2);
@@ -83,9 +88,11 @@ public class PostControllerUnitTests {
         postsListMock.setPosts(new ArrayList<Post>(Arrays.asList(p1, p2, p3)));
 
         when(hatchDataServiceMock.
-                getPosts(TECH, ID_FIELD, ASC))
-                .thenReturn(postsListMock);
-        PostsList result = postController.getPosts(TECH, ID_FIELD, ASC);
+                getEncodedPosts(TECH, ID_FIELD, ASC, 0, null))
+                .thenReturn(EncodedPosts.of(objectMapper.writeValueAsBytes(postsListMock), postsListMock.getPosts().size()));
+        ResponseEntity<byte[]> response = postController.getPosts(TECH, ID_FIELD, ASC, 0, null, null);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        PostsList result = objectMapper.readValue(response.getBody(), PostsList.class);
         assertEquals(3, result.getPosts().size());
         assertEquals(ID1, result.getPosts().get(0).getId());
         assertEquals(ID2, result.getPosts().get(1).getId());
@@ -98,13 +105,13 @@ public class PostControllerUnitTests {
     public void getPostsWithEmptyTag() {
         InvalidParameterException ex = new InvalidParameterException(TAGS_PARAM_ERROR);
         when(hatchDataServiceMock.
-                getPosts("", LIKES_FIELD, DESC))
+                getEncodedPosts("", LIKES_FIELD, DESC, 0, null))
                 .thenThrow(ex);
 
         assertThrows(InvalidParameterException.class,
-                () -> {postController.getPosts("", LIKES_FIELD, DESC);});
+                () -> {postController.getPosts("", LIKES_FIELD, DESC, 0, null, null);});
         Throwable thrown = assertThrows(InvalidParameterException.class,
-                () -> {postController.getPosts("", LIKES_FIELD, DESC);});
+                () -> {postController.getPosts("", LIKES_FIELD, DESC, 0, null, null);});
         assertEquals(thrown.getMessage(), TAGS_PARAM_ERROR);
     }
 
@@ -112,11 +119,11 @@ public class PostControllerUnitTests {
     public void getPostsWithInvalidSortBy() {
         InvalidParameterException ex = new InvalidParameterException(SORT_PARAM_ERROR);
         when(hatchDataServiceMock.
-                getPosts(CULTURE, "invalid", DESC))
+                getEncodedPosts(CULTURE, "invalid", DESC, 0, null))
                 .thenThrow(ex);
 
         Throwable thrown = assertThrows(InvalidParameterException.class,
-                () -> {postController.getPosts(CULTURE, "invalid", DESC);});
+                () -> {postController.getPosts(CULTURE, "invalid", DESC, 0, null, null);});
         assertEquals(thrown.getMessage(), SORT_PARAM_ERROR);
     }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.assessment.blogposts.controller;
+
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.support.HatchwaysStub;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "blogposts.mode=reactive")
+@AutoConfigureMockMvc
+public class ReactivePostControllerIntegrationTest {
+    private static final String TECH = "tech";
+    private static final String HISTORY = "history";
+
+    private static final String TAGS_PARAM_ERROR = "tags parameter is required";
+    private static final String SORT_PARAM_ERROR = "sortBy parameter is invalid";
+
+    private static final List<String> TAGS1 =
+            new ArrayList<>(Arrays.asList(TECH, HISTORY));
+
+    private static final HatchwaysStub hatchwaysStub;
+
+    static {
+        try {
+            hatchwaysStub = HatchwaysStub.start();
+            hatchwaysStub.setPosts(TECH,
+                    new Post(1, "Hatways1", 1, 2000, 0.78f, 5000, TAGS1),
+                    new Post(2, "Hatways2", 2, 1000, 0.85f, 8000, TAGS1));
+            hatchwaysStub.setPosts(HISTORY,
+                    new Post(2, "Hatways2", 2, 1000, 0.85f, 8000, TAGS1),
+                    new Post(3, "Hatways3", 3, 1200, 0.92f, 2200, TAGS1));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void hatchwaysProperties(DynamicPropertyRegistry registry) {
+        registry.add("hatchways.base-url", hatchwaysStub::getBaseUrl);
+    }
+
+    @AfterAll
+    static void destroy() {
+        hatchwaysStub.close();
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void getPingResult() throws Exception {
+        mockMvc.perform(get("/api/ping"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+    }
+
+    @Test
+    public void getPostsWithTwoTagsReadsDesc() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/posts?tags=tech,history&sortBy=reads&direction=desc"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts.length()").value(3))
+                .andExpect(jsonPath("$.posts[0].id").value(2))
+                .andExpect(jsonPath("$.posts[1].id").value(1))
+                .andExpect(jsonPath("$.posts[2].id").value(3));
+    }
+
+    @Test
+    public void getPostsWithEmptyTags() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/posts?tags="))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(TAGS_PARAM_ERROR));
+    }
+
+    @Test
+    public void getPostsWithInvalidSortBy() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/posts?tags=tech&sortBy=invalid"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(SORT_PARAM_ERROR));
+    }
+}
@@ -0,0 +1,125 @@
+package com.assessment.blogposts.load;
+
+import com.assessment.blogposts.support.HatchwaysStub;
+import com.assessment.blogposts.support.LoadDriver;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The load scenario of /api/posts, run with "mvn -Pload test" and not with the other tests.
+ * The application calls a HatchwaysStub with latency, jitter, generated payloads and errors,
+ * while LoadDriver sends a mix of tags, sort fields, directions, pages and streamed requests
+ * at every concurrency of "load.concurrency". The test fails when the p99 latency of a concurrency
+ * is over "load.p99-threshold", or too many requests fail. The settings are system properties:
+ * mvn -Pload test -Dload.concurrency=1,8,32 -Dload.duration=20s -Dload.p99-threshold=100ms
+ * The workload and the requests of every LoadDriver thread are drawn from "load.seed", so a run can be repeated.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"logging.level.com.assessment.blogposts=warn", "logging.level.com.assessment.blogposts.load=info"})
+public class PostsLoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(PostsLoadTest.class);
+    private static final int TAG_COUNT = intSetting("load.tags", 20);
+    private static final int POSTS_PER_TAG = intSetting("load.posts-per-tag", 500);
+    private static final Duration UPSTREAM_LATENCY = durationSetting("load.upstream-latency", "20ms");
+    private static final Duration UPSTREAM_JITTER = durationSetting("load.upstream-jitter", "30ms");
+    private static final double UPSTREAM_ERROR_RATE = Double.parseDouble(System.getProperty("load.upstream-error-rate", "0.01"));
+    private static final String CONCURRENCY = System.getProperty("load.concurrency", "1,4,16,64");
+    private static final Duration WARMUP = durationSetting("load.warmup", "3s");
+    private static final Duration DURATION = durationSetting("load.duration", "10s");
+    private static final Duration P99_THRESHOLD = durationSetting("load.p99-threshold", "250ms");
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+    private static final long SEED = Long.parseLong(System.getProperty("load.seed", "42"));
+    private static final String[] SORT_FIELDS = {"id", "reads", "likes", "popularity"};
+    private static final String[] DIRECTIONS = {"asc", "desc"};
+    private static final int WORKLOAD_SIZE = 300;
+
+    private static final HatchwaysStub hatchwaysStub;
+
+    static {
+        try {
+            hatchwaysStub = HatchwaysStub.start();
+            hatchwaysStub.setLatency(UPSTREAM_LATENCY, UPSTREAM_JITTER);
+            //The tags share a tenth of their posts on average
+            hatchwaysStub.setGeneratedPosts(POSTS_PER_TAG, (long) POSTS_PER_TAG * TAG_COUNT);
+            hatchwaysStub.setErrorRate(UPSTREAM_ERROR_RATE, 503);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void hatchwaysProperties(DynamicPropertyRegistry registry) {
+        registry.add("hatchways.base-url", hatchwaysStub::getBaseUrl);
+    }
+
+    @AfterAll
+    static void destroy() {
+        hatchwaysStub.close();
+    }
+
+    @LocalServerPort
+    int port;
+
+    //The mixed queries, 1 to 3 tags with any sort, half of them paged and a tenth streamed
+    private List<URI> workload() {
+        Random random = new Random(SEED);
+        List<URI> uris = new ArrayList<>(WORKLOAD_SIZE);
+        for (int i = 0; i < WORKLOAD_SIZE; i++) {
+            StringBuilder uri = new StringBuilder("http://localhost:").append(port).append("/api/posts?tags=");
+            int tags = 1 + random.nextInt(3);
+            for (int t = 0; t < tags; t++) {
+                if (t > 0) uri.append(',');
+                uri.append("tag").append(random.nextInt(TAG_COUNT));
+            }
+            uri.append("&sortBy=").append(SORT_FIELDS[random.nextInt(SORT_FIELDS.length)])
+                    .append("&direction=").append(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+            if (random.nextBoolean()) uri.append("&offset=").append(20 * random.nextInt(5)).append("&limit=20");
+            if (random.nextInt(10) == 0) uri.append("&stream=true");
+            uris.add(URI.create(uri.toString()));
+        }
+        return uris;
+    }
+
+    @Test
+    public void latencyWithinThresholdAtEveryConcurrency() throws Exception {
+        LoadDriver loadDriver = new LoadDriver(workload(), SEED);
+        List<String> failures = new ArrayList<>();
+        for (String level : CONCURRENCY.split(",")) {
+            LoadDriver.Report report = loadDriver.run(Integer.parseInt(level.trim()), WARMUP, DURATION);
+            logger.info("{}", report);
+            if (report.percentile(0.99).compareTo(P99_THRESHOLD) > 0) {
+                failures.add("p99 over " + P99_THRESHOLD.toMillis() + " ms at " + report);
+            }
+            if (report.getErrorRate() > MAX_ERROR_RATE) {
+                failures.add("error rate over " + MAX_ERROR_RATE + " at " + report);
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    private static int intSetting(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty(name, String.valueOf(defaultValue)));
+    }
+
+    private static Duration durationSetting(String name, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(name, defaultValue));
+    }
+}
@@ -0,0 +1,79 @@
+package com.assessment.blogposts.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PostTableTests {
+    private static final List<String> TAGS = List.of("tech");
+
+    PostTable postTable = new PostTable(2);
+
+    //To build the posts of a tag, every post given as {id, likes}
+    @SuppressWarnings("unchecked")
+    private HeapPostStore posts(long[]... posts) {
+        int size = posts.length;
+        long[] ids = new long[size];
+        long[] likes = new long[size];
+        List<String>[] tags = new List[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = posts[i][0];
+            likes[i] = posts[i][1];
+            tags[i] = TAGS;
+        }
+        return new HeapPostStore(size, ids, new String[size], new long[size], likes, new float[size], new long[size], tags, null);
+    }
+
+    @Test
+    public void storeThePostsOfSeveralTagsOnce() {
+        int[] tech = postTable.store(posts(new long[]{1, 10}, new long[]{2, 20}, new long[]{3, 30}));
+        int[] history = postTable.store(posts(new long[]{3, 30}, new long[]{4, 40}, new long[]{1, 10}));
+
+        assertEquals(4, postTable.size());
+        assertEquals(tech[2], history[0]);
+        assertEquals(tech[0], history[2]);
+        PostTable.Columns columns = postTable.getColumns();
+        assertEquals(40, columns.likes[history[1]]);
+        assertEquals("{\"id\":4,\"author\":null,\"authorId\":0,\"likes\":40,\"popularity\":0.0,\"reads\":0,\"tags\":[\"tech\"]}",
+                new String(columns.json[history[1]]));
+        assertFalse(columns.otherVersions[tech[0]]);
+    }
+
+    @Test
+    public void storeOtherValuesOfAPostApart() {
+        int[] tech = postTable.store(posts(new long[]{1, 10}));
+        int[] history = postTable.store(posts(new long[]{1, 11}));
+        int[] culture = postTable.store(posts(new long[]{1, 11}));
+
+        assertNotEquals(tech[0], history[0]);
+        assertArrayEquals(history, culture);
+        assertTrue(postTable.getColumns().otherVersions[tech[0]]);
+        assertTrue(postTable.getColumns().otherVersions[history[0]]);
+        assertEquals(10, postTable.getColumns().likes[tech[0]]);
+        assertEquals(11, postTable.getColumns().likes[history[0]]);
+    }
+
+    @Test
+    public void freeTheSlotsNoTagHolds() {
+        int[] tech = postTable.store(posts(new long[]{1, 10}, new long[]{2, 20}));
+        int[] history = postTable.store(posts(new long[]{2, 20}));
+
+        postTable.release(tech);
+        assertEquals(1, postTable.size());
+        assertEquals(20, postTable.getColumns().likes[history[0]]);
+
+        //The freed slot is used again, and the post it held is not found anymore
+        int[] culture = postTable.store(posts(new long[]{1, 12}));
+        assertEquals(tech[0], culture[0]);
+        assertFalse(postTable.getColumns().otherVersions[culture[0]]);
+        postTable.release(history);
+        postTable.release(culture);
+        assertEquals(0, postTable.size());
+    }
+}
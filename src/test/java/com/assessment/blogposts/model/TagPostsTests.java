@@ -0,0 +1,91 @@
+package com.assessment.blogposts.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TagPostsTests {
+    private static final int SIZE = 300;
+    private static final List<String> TAGS = List.of("tech");
+
+    private void add(TagPosts.Builder builder, long id, Random random) {
+        builder.add(id, "Rylee Paul", 9, random.nextInt(50), random.nextInt(20) / 10f, random.nextInt(1000), TAGS);
+    }
+
+    //To check the orders of every field are the ones sorted from scratch
+    private void assertSameOrders(TagPosts expected, TagPosts actual) {
+        assertEquals(expected.size(), actual.size());
+        for (SortField field : SortField.values()) {
+            for (int position = 0; position < expected.size(); position++) {
+                assertEquals(expected.getId(expected.getOrdered(field, position)),
+                        actual.getId(actual.getOrdered(field, position)), field + " at " + position);
+            }
+        }
+    }
+
+    @Test
+    public void updateTheOrdersOfARefreshedTag() {
+        Random random = new Random(7);
+        TagPosts.Builder builder = TagPosts.builder();
+        for (int id = 0; id < SIZE; id++) add(builder, id, random);
+        TagPosts previous = builder.build();
+
+        //A tenth of the posts are gone, a tenth changed and a tenth are new, in another order than before
+        TagPosts.Builder refreshed = TagPosts.builder();
+        TagPosts.Builder expected = TagPosts.builder();
+        for (int id = SIZE + SIZE / 10 - 1; id >= SIZE / 10; id--) {
+            long seed = random.nextLong();
+            int index = previous.indexOf(id);
+            if (index >= 0 && id % 10 != 0) {
+                refreshed.add(id, "Rylee Paul", 9, previous.getLikes(index), previous.getPopularity(index), previous.getReads(index), TAGS);
+                expected.add(id, "Rylee Paul", 9, previous.getLikes(index), previous.getPopularity(index), previous.getReads(index), TAGS);
+            } else {
+                add(refreshed, id, new Random(seed));
+                add(expected, id, new Random(seed));
+            }
+        }
+
+        assertSameOrders(expected.build(), refreshed.build(previous));
+    }
+
+    @Test
+    public void sortAgainWhenMostPostsChanged() {
+        Random random = new Random(7);
+        TagPosts.Builder builder = TagPosts.builder(true);
+        for (int id = 0; id < SIZE; id++) add(builder, id, random);
+        TagPosts previous = builder.build();
+
+        TagPosts.Builder refreshed = TagPosts.builder();
+        TagPosts.Builder expected = TagPosts.builder();
+        for (int id = 0; id < SIZE; id++) {
+            long seed = random.nextLong();
+            add(refreshed, id, new Random(seed));
+            add(expected, id, new Random(seed));
+        }
+
+        assertSameOrders(expected.build(), refreshed.build(previous));
+        assertEquals(0, TagPosts.builder().build(previous).size());
+    }
+
+    @Test
+    public void shareEqualAuthorsAndTagListsBetweenTags() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            TagPosts first = TagPosts.builder(offHeap)
+                    .add(1, new String("Rylee Paul"), 9, 1, 0.5f, 1, new ArrayList<>(List.of("tech", "history")))
+                    .add(2, new String("Rylee Paul"), 9, 2, 0.5f, 2, new ArrayList<>(List.of("tech", "history")))
+                    .build();
+            TagPosts second = TagPosts.builder(offHeap)
+                    .add(3, new String("Rylee Paul"), 9, 3, 0.5f, 3, new ArrayList<>(List.of("tech", "history")))
+                    .build();
+
+            assertSame(first.getPost(0).getAuthor(), second.getPost(0).getAuthor());
+            assertSame(first.getPost(0).getTags(), first.getPost(1).getTags());
+            assertSame(first.getPost(0).getTags(), second.getPost(0).getTags());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.assessment.blogposts.service;
+
+import com.assessment.blogposts.config.HatchwaysProperties;
+import com.assessment.blogposts.config.HttpClientConfig;
+import com.assessment.blogposts.exceptions.UpstreamUnavailableException;
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.model.TagPosts;
+import com.assessment.blogposts.support.HatchwaysStub;
+import com.assessment.blogposts.util.PostsMetrics;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HatchApiClientTests {
+    private static final String TECH = "tech";
+    private static final String HISTORY = "history";
+
+    HatchwaysStub hatchwaysStub;
+    HatchwaysProperties hatchwaysProperties;
+    HttpClientConfig httpClientConfig = new HttpClientConfig();
+    PoolingHttpClientConnectionManager connectionManager;
+    PostsMetrics postsMetrics = new PostsMetrics(new SimpleMeterRegistry());
+
+    @BeforeEach
+    public void init() throws Exception {
+        hatchwaysStub = HatchwaysStub.start();
+        hatchwaysStub.setPosts(TECH,
+                new Post(1, "Hatways1", 1, 200, 0.5f, 900, Arrays.asList(TECH)),
+                new Post(2, "Hatways2", 2, 100, 0.7f, 800, Arrays.asList(TECH)));
+        hatchwaysProperties = new HatchwaysProperties();
+        hatchwaysProperties.setBaseUrl(hatchwaysStub.getBaseUrl());
+        HatchwaysProperties.Resilience resilience = hatchwaysProperties.getResilience();
+        resilience.setRetryBackoff(Duration.ofMillis(10));
+        resilience.setSlidingWindowSize(4);
+        resilience.setMinimumCalls(4);
+        resilience.setOpenDuration(Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    public void destroy() {
+        if (connectionManager != null) connectionManager.close();
+        hatchwaysStub.close();
+    }
+
+    //To build the client with the http client of the application
+    private HatchApiClient hatchApiClient() {
+        connectionManager = httpClientConfig.hatchwaysConnectionManager(hatchwaysProperties);
+        ClientHttpRequestFactory requestFactory = httpClientConfig.hatchwaysRequestFactory(connectionManager, hatchwaysProperties);
+        return new HatchApiClient(new RestTemplateBuilder(
+                httpClientConfig.hatchwaysRestTemplateCustomizer(requestFactory, hatchwaysProperties)), hatchwaysProperties, postsMetrics);
+    }
+
+    @Test
+    public void retryFailedCall() {
+        HatchApiClient hatchApiClient = hatchApiClient();
+        hatchwaysStub.failNext(2, 503);
+
+        assertEquals(2, hatchApiClient.fetchPostsByTag(TECH).size());
+        assertEquals(3, hatchwaysStub.getRequestCount(TECH));
+    }
+
+    @Test
+    public void doNotRetryClientError() {
+        HatchApiClient hatchApiClient = hatchApiClient();
+        hatchwaysStub.failNext(1, 400);
+
+        assertThrows(HttpClientErrorException.class, () -> hatchApiClient.fetchPostsByTag(TECH));
+        assertEquals(1, hatchwaysStub.getRequestCount(TECH));
+    }
+
+    @Test
+    public void stopRetryingWhenBudgetIsSpent() {
+        hatchwaysProperties.getResilience().setRetryBurst(2);
+        hatchwaysProperties.getResilience().setRetryBudgetRatio(0);
+        hatchwaysProperties.getResilience().setMinimumCalls(100);
+        HatchApiClient hatchApiClient = hatchApiClient();
+        hatchwaysStub.setErrorRate(1, 503);
+
+        assertThrows(HttpServerErrorException.class, () -> hatchApiClient.fetchPostsByTag(TECH));
+        assertThrows(HttpServerErrorException.class, () -> hatchApiClient.fetchPostsByTag(TECH));
+        assertEquals(4, hatchwaysStub.getRequestCount(TECH));
+    }
+
+    @Test
+    public void spendNoBudgetOnTheLastAttempt() {
+        hatchwaysProperties.getResilience().setMaxAttempts(2);
+        hatchwaysProperties.getResilience().setRetryBurst(2);
+        hatchwaysProperties.getResilience().setRetryBudgetRatio(0);
+        hatchwaysProperties.getResilience().setSlidingWindowSize(100);
+        hatchwaysProperties.getResilience().setMinimumCalls(100);
+        HatchApiClient hatchApiClient = hatchApiClient();
+        hatchwaysStub.setErrorRate(1, 503);
+
+        for (int i = 0; i < 3; i++) assertThrows(HttpServerErrorException.class, () -> hatchApiClient.fetchPostsByTag(TECH));
+        assertEquals(5, hatchwaysStub.getRequestCount(TECH));
+    }
+
+    @Test
+    public void doNotRetryPastTheFetchTimeout() {
+        hatchwaysProperties.setFetchTimeout(Duration.ofSeconds(1));
+        hatchwaysProperties.getClient().setReadTimeout(Duration.ofSeconds(1));
+        HatchApiClient hatchApiClient = hatchApiClient();
+        hatchwaysStub.failNext(1, 503);
+
+        assertThrows(HttpServerErrorException.class, () -> hatchApiClient.fetchPostsByTag(TECH));
+        assertEquals(1, hatchwaysStub.getRequestCount(TECH));
+    }
+
+    @Test
+    public void serveCachedPostsWhileCircuitIsOpen() {
+        HatchApiClient hatchApiClient = hatchApiClient();
+        TagPosts posts = hatchApiClient.fetchPostsByTag(TECH);
+        hatchwaysStub.setErrorRate(1, 500);
+
+        for (int i = 0; i < 4; i++) assertSame(posts, hatchApiClient.fetchPostsByTag(TECH, posts));
+        assertEquals(CircuitBreaker.State.OPEN, hatchApiClient.getCircuitState());
+
+        int requests = hatchwaysStub.getRequestCount(TECH);
+        assertSame(posts, hatchApiClient.fetchPostsByTag(TECH, posts));
+        assertEquals(requests, hatchwaysStub.getRequestCount(TECH));
+        assertThrows(UpstreamUnavailableException.class, () -> hatchApiClient.fetchPostsByTag(TECH));
+        assertThrows(UpstreamUnavailableException.class, () -> hatchApiClient.fetchPostsByTag(HISTORY));
+        assertEquals(0, hatchwaysStub.getRequestCount(HISTORY));
+    }
+}
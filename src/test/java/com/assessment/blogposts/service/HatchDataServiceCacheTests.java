@@ -0,0 +1,185 @@
+package com.assessment.blogposts.service;
+
+import com.assessment.blogposts.config.HatchwaysProperties;
+import com.assessment.blogposts.model.EncodedPosts;
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.model.PostsList;
+import com.assessment.blogposts.util.PostsMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringJUnitConfig
+public class HatchDataServiceCacheTests {
+    private static final String TECH = "tech";
+    private static final String HISTORY = "history";
+
+    private static final String ID_FIELD = "id";
+    private static final String LIKES_FIELD = "likes";
+    private static final String READS_FIELD = "reads";
+
+    private static final String ASC = "asc";
+    private static final String DESC = "desc";
+
+    private static final String PRE_URL = "https://api.hatchways.io/assessment/blog/posts?tag=";
+
+    private static final List<String> TAGS1 =
+            new ArrayList<>(Arrays.asList(TECH, HISTORY));
+    private static final List<String> TAGS2 =
+            new ArrayList<>(Arrays.asList(TECH));
+
+    @Configuration
+    @EnableCaching
+    static class CacheTestConfig {
+        @Bean
+        public CacheManager cacheManager() {
+            CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+            cacheManager.setCaffeine(Caffeine.newBuilder().recordStats());
+            return cacheManager;
+        }
+
+        @Bean
+        public RestTemplate restTemplate() {
+            return Mockito.mock(RestTemplate.class);
+        }
+
+        @Bean
+        public PostsMetrics postsMetrics() {
+            return new PostsMetrics(new SimpleMeterRegistry());
+        }
+
+        @Bean
+        public HatchApiClient hatchApiClient(RestTemplate restTemplate, PostsMetrics postsMetrics) {
+            RestTemplateBuilder restTemplateBuilderMock = Mockito.mock(RestTemplateBuilder.class);
+            when(restTemplateBuilderMock.build()).thenReturn(restTemplate);
+            return new HatchApiClient(restTemplateBuilderMock, new HatchwaysProperties(), postsMetrics);
+        }
+
+        @Bean
+        public HatchDataService hatchDataService(HatchApiClient hatchApiClient, CacheManager cacheManager,
+                                                 PostsMetrics postsMetrics) {
+            return new HatchDataService(hatchApiClient, cacheManager, new SyncTaskExecutor(), new HatchwaysProperties(), postsMetrics);
+        }
+    }
+
+    @Autowired
+    HatchDataService hatchDataService;
+
+    @Autowired
+    RestTemplate restTemplateMock;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @BeforeEach
+    public void init() {
+        hatchDataService.emptyCache();
+        reset(restTemplateMock);
+        PostsList techPosts = new PostsList();
+        techPosts.setPosts(new ArrayList<Post>(Arrays.asList(
+                new Post(1, "Hatways1", 1, 200, 0.5f, 900, TAGS1),
+                new Post(2, "Hatways2", 2, 100, 0.7f, 800, TAGS2))));
+        PostsList historyPosts = new PostsList();
+        historyPosts.setPosts(new ArrayList<Post>(Arrays.asList(
+                new Post(1, "Hatways1", 1, 200, 0.5f, 900, TAGS1))));
+        when(restTemplateMock.execute(eq(PRE_URL+TECH), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(respondWith(techPosts));
+        when(restTemplateMock.execute(eq(PRE_URL+HISTORY), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(respondWith(historyPosts));
+    }
+
+    //To answer a request with the posts written as JSON, as the external api does, through the response extractor
+    private Answer<Object> respondWith(PostsList postsList) {
+        return invocation -> {
+            ResponseExtractor<?> extractor = invocation.getArgument(3);
+            byte[] body = new ObjectMapper().writeValueAsBytes(postsList);
+            return extractor.extractData(new MockClientHttpResponse(body, HttpStatus.OK));
+        };
+    }
+
+    @Test
+    public void getPostsFetchesEveryTagOnceForAnyCombination() {
+        hatchDataService.getPosts(TECH+","+HISTORY, LIKES_FIELD, DESC);
+        hatchDataService.getPosts(HISTORY+","+TECH, READS_FIELD, ASC);
+        hatchDataService.getPosts(TECH, ID_FIELD, ASC);
+
+        verify(restTemplateMock, times(1)).execute(eq(PRE_URL+TECH), eq(HttpMethod.GET), isNull(), any());
+        verify(restTemplateMock, times(1)).execute(eq(PRE_URL+HISTORY), eq(HttpMethod.GET), isNull(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getPostsCountsEveryLookupOnce() {
+        Cache<Object, Object> cache = (Cache<Object, Object>) cacheManager.getCache(HatchApiClient.TAG_POSTS_CACHE).getNativeCache();
+        CacheStats before = cache.stats();
+        hatchDataService.getPosts(TECH, ID_FIELD, ASC);
+        hatchDataService.getPosts(TECH+","+HISTORY, ID_FIELD, ASC);
+
+        CacheStats stats = cache.stats().minus(before);
+        assertEquals(1, stats.hitCount());
+        assertEquals(2, stats.missCount());
+    }
+
+    @Test
+    public void getPostsDoesNotReorderCachedTag() {
+        PostsList result = hatchDataService.getPosts(TECH, LIKES_FIELD, ASC);
+        assertEquals(2, result.getPosts().get(0).getId());
+
+        result = hatchDataService.getPosts(TECH, ID_FIELD, ASC);
+        assertEquals(1, result.getPosts().get(0).getId());
+        assertEquals(2, result.getPosts().get(1).getId());
+    }
+
+    @Test
+    public void getEncodedPostsReusesResponseUntilTagIsFetchedAgain() throws Exception {
+        EncodedPosts first = hatchDataService.getEncodedPosts(TECH+","+HISTORY, LIKES_FIELD, DESC, 0, null);
+        EncodedPosts second = hatchDataService.getEncodedPosts(HISTORY+","+TECH+","+HISTORY, LIKES_FIELD, DESC, 0, null);
+        EncodedPosts other = hatchDataService.getEncodedPosts(TECH+","+HISTORY, LIKES_FIELD, ASC, 0, null);
+        assertSame(first, second);
+        assertNotEquals(first.getEtag(), other.getEtag());
+        PostsList result = new ObjectMapper().readValue(first.getJson(), PostsList.class);
+        assertEquals(1, result.getPosts().get(0).getId());
+        assertEquals(2, result.getPosts().get(1).getId());
+
+        hatchDataService.emptyCache();
+        EncodedPosts refetched = hatchDataService.getEncodedPosts(TECH+","+HISTORY, LIKES_FIELD, DESC, 0, null);
+        assertNotSame(first, refetched);
+        assertEquals(first.getEtag(), refetched.getEtag());
+    }
+}
@@ -1,23 +1,55 @@
 package com.assessment.blogposts.service;
 
+import com.assessment.blogposts.config.HatchwaysProperties;
 import com.assessment.blogposts.exceptions.InvalidParameterException;
+import com.assessment.blogposts.exceptions.UpstreamTimeoutException;
+import com.assessment.blogposts.model.BatchQuery;
 import com.assessment.blogposts.model.Post;
 import com.assessment.blogposts.model.PostsList;
+import com.assessment.blogposts.model.TagPosts;
+import com.assessment.blogposts.util.PostsMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -36,6 +68,10 @@ public class HatchDataServiceTests {
     private static final String TAGS_PARAM_ERROR = "tags parameter is required";
     private static final String SORT_PARAM_ERROR = "sortBy parameter is invalid";
     private static final String DIRECT_PARAM_ERROR = "direction parameter is invalid";
+    private static final String OFFSET_PARAM_ERROR = "offset parameter is invalid";
+    private static final String LIMIT_PARAM_ERROR = "limit parameter is invalid";
+    //How long a mocked fetch waits for the other callers or fetches before failing the test
+    private static final long FETCH_WAIT_SECONDS = 2;
 
     private final String PRE_URL = "https://api.hatchways.io/assessment/blog/posts?tag=";
 
@@ -66,13 +102,48 @@ public class HatchDataServiceTests {
 
     HatchDataService hatchDataService;
     RestTemplate restTemplateMock;
+    HatchwaysProperties hatchwaysProperties;
+    ExecutorService fetchExecutor;
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    PostsMetrics postsMetrics = new PostsMetrics(meterRegistry);
+    CountDownLatch started;
+    Queue<Thread> callerThreads = new ConcurrentLinkedQueue<>();
 
     @BeforeEach
     public void init() throws Exception {
         RestTemplateBuilder restTemplateBuilderMock = Mockito.mock(RestTemplateBuilder.class);
         restTemplateMock = Mockito.mock(RestTemplate.class);
         when(restTemplateBuilderMock.build()).thenReturn(restTemplateMock);
-        hatchDataService = new HatchDataService(restTemplateBuilderMock);
+        hatchwaysProperties = new HatchwaysProperties();
+        fetchExecutor = Executors.newFixedThreadPool(4);
+        hatchDataService = new HatchDataService(new HatchApiClient(restTemplateBuilderMock, hatchwaysProperties, postsMetrics),
+                new NoOpCacheManager(), fetchExecutor, hatchwaysProperties, postsMetrics);
+    }
+
+    @AfterEach
+    public void destroy() {
+        fetchExecutor.shutdownNow();
+    }
+
+    //To count a caller as started, keeping its thread to see when it waits for the fetches
+    private void start() {
+        callerThreads.add(Thread.currentThread());
+        started.countDown();
+    }
+
+    //To wait until every caller thread is blocked, waiting with the fetch timeout for the fetches it joined
+    private static void awaitWaiting(Collection<Thread> threads) {
+        await().atMost(FETCH_WAIT_SECONDS, TimeUnit.SECONDS).until(() ->
+                threads.stream().allMatch(thread -> thread.getState() == Thread.State.TIMED_WAITING));
+    }
+
+    //To answer a request with the posts written as JSON, as the external api does, through the response extractor
+    private Answer<Object> respondWith(PostsList postsList) {
+        return invocation -> {
+            ResponseExtractor<?> extractor = invocation.getArgument(3);
+            byte[] body = new ObjectMapper().writeValueAsBytes(postsList);
+            return extractor.extractData(new MockClientHttpResponse(body, HttpStatus.OK));
+        };
     }
 
 
@@ -82,10 +153,9 @@ public class HatchDataServiceTests {
         Post p1 = new Post(ID1, AUTHOR1, AUTHOR_ID1, LIKES1, POPULARITY1, READS1, TAGS1);
         Post p3 = new Post(ID3, AUTHOR3, AUTHOR_ID3, LIKES3, POPULARITY3, READS3, TAGS3);
         postsListMock.setPosts(new ArrayList<Post>(Arrays.asList(p1, p3)));
-        ResponseEntity responseEntity = new ResponseEntity(postsListMock, HttpStatus.ACCEPTED);
         when(restTemplateMock
-                .exchange(PRE_URL+CULTURE, HttpMethod.GET, null, PostsList.class))
-                .thenReturn(responseEntity);
+                .execute(eq(PRE_URL+CULTURE), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(respondWith(postsListMock));
 
         PostsList result = hatchDataService.getPosts(CULTURE, ID_FIELD, ASC);
         assertEquals(result.getPosts().size(), 2);
@@ -93,7 +163,7 @@ public class HatchDataServiceTests {
         assertEquals(result.getPosts().get(1).getId(), ID3);
         assertEquals(result.getPosts().get(0).getLikes(), LIKES1);
         assertEquals(result.getPosts().get(1).getPopularity(), POPULARITY3);
-        verify(restTemplateMock).exchange(PRE_URL+CULTURE, HttpMethod.GET, null, PostsList.class);
+        verify(restTemplateMock).execute(eq(PRE_URL+CULTURE), eq(HttpMethod.GET), isNull(), any());
     }
 
     @Test
@@ -105,22 +175,43 @@ public class HatchDataServiceTests {
         Post p3 = new Post(ID3, AUTHOR3, AUTHOR_ID3, LIKES3, POPULARITY3, READS3, TAGS3);
         postsListMock1.setPosts(new ArrayList<Post>(Arrays.asList(p2)));
         postsListMock2.setPosts(new ArrayList<Post>(Arrays.asList(p1, p3)));
-        ResponseEntity responseEntity1 = new ResponseEntity(postsListMock1, HttpStatus.ACCEPTED);
-        ResponseEntity responseEntity2 = new ResponseEntity(postsListMock2, HttpStatus.ACCEPTED);
         when(restTemplateMock
-                .exchange(PRE_URL+HISTORY, HttpMethod.GET, null, PostsList.class))
-                .thenReturn(responseEntity1);
+                .execute(eq(PRE_URL+HISTORY), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(respondWith(postsListMock1));
         when(restTemplateMock
-                .exchange(PRE_URL+CULTURE, HttpMethod.GET, null, PostsList.class))
-                .thenReturn(responseEntity2);
+                .execute(eq(PRE_URL+CULTURE), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(respondWith(postsListMock2));
 
         PostsList result = hatchDataService.getPosts(HISTORY+","+CULTURE, LIKES_FIELD, DESC);
         assertEquals(result.getPosts().size(), 3);
         assertEquals(result.getPosts().get(0).getLikes(), LIKES1);
         assertEquals(result.getPosts().get(1).getLikes(), LIKES3);
         assertEquals(result.getPosts().get(2).getLikes(), LIKES2);
-        verify(restTemplateMock).exchange(PRE_URL+HISTORY, HttpMethod.GET, null, PostsList.class);
-        verify(restTemplateMock).exchange(PRE_URL+CULTURE, HttpMethod.GET, null, PostsList.class);
+        verify(restTemplateMock).execute(eq(PRE_URL+HISTORY), eq(HttpMethod.GET), isNull(), any());
+        verify(restTemplateMock).execute(eq(PRE_URL+CULTURE), eq(HttpMethod.GET), isNull(), any());
+    }
+
+    @Test
+    public void recordPostsMetrics() {
+        PostsList postsListMock = new PostsList();
+        Post p1 = new Post(ID1, AUTHOR1, AUTHOR_ID1, LIKES1, POPULARITY1, READS1, TAGS1);
+        Post p3 = new Post(ID3, AUTHOR3, AUTHOR_ID3, LIKES3, POPULARITY3, READS3, TAGS3);
+        postsListMock.setPosts(new ArrayList<Post>(Arrays.asList(p1, p3)));
+        when(restTemplateMock
+                .execute(eq(PRE_URL+CULTURE), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(respondWith(postsListMock));
+
+        hatchDataService.getPosts(CULTURE, ID_FIELD, ASC);
+        assertEquals(1, meterRegistry.get(PostsMetrics.UPSTREAM_REQUESTS)
+                .tag(PostsMetrics.TAG, CULTURE).tag(PostsMetrics.OUTCOME, PostsMetrics.SUCCESS).timer().count());
+        assertEquals(0, meterRegistry.get(PostsMetrics.UPSTREAM_IN_FLIGHT).gauge().value());
+
+        hatchDataService.getEncodedPosts(CULTURE, ID_FIELD, ASC, 0, 1);
+        assertEquals(2, meterRegistry.get(PostsMetrics.MERGE).timer().count());
+        assertEquals(1, meterRegistry.get(PostsMetrics.SERIALIZE)
+                .tag(PostsMetrics.FORMAT, PostsMetrics.JSON).timer().count());
+        assertEquals(2, meterRegistry.get(PostsMetrics.POSTS_PER_RESPONSE).summary().count());
+        assertEquals(3, meterRegistry.get(PostsMetrics.POSTS_PER_RESPONSE).summary().totalAmount());
     }
 
     @Test
@@ -143,4 +234,221 @@ public class HatchDataServiceTests {
                 () -> {hatchDataService.getPosts(TECH, LIKES_FIELD, "invalid");});
         assertEquals(thrown.getMessage(), DIRECT_PARAM_ERROR);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getPostsWithInvalidPage() {
+        Throwable thrown = assertThrows(InvalidParameterException.class,
+                () -> {hatchDataService.getPosts(TECH, LIKES_FIELD, DESC, -1, 10);});
+        assertEquals(thrown.getMessage(), OFFSET_PARAM_ERROR);
+        thrown = assertThrows(InvalidParameterException.class,
+                () -> {hatchDataService.getPosts(TECH, LIKES_FIELD, DESC, 0, -1);});
+        assertEquals(thrown.getMessage(), LIMIT_PARAM_ERROR);
+    }
+
+    @Test
+    public void getPostsTwoTagsLikesDescFirstPage() {
+        PostsList postsListMock1 = new PostsList();
+        PostsList postsListMock2 = new PostsList();
+        Post p1 = new Post(ID1, AUTHOR1, AUTHOR_ID1, LIKES1, POPULARITY1, READS1, TAGS1);
+        Post p2 = new Post(ID2, AUTHOR2, AUTHOR_ID2, LIKES2, POPULARITY2, READS2, TAGS2);
+        Post p3 = new Post(ID3, AUTHOR3, AUTHOR_ID3, LIKES3, POPULARITY3, READS3, TAGS3);
+        postsListMock1.setPosts(new ArrayList<Post>(Arrays.asList(p2)));
+        postsListMock2.setPosts(new ArrayList<Post>(Arrays.asList(p1, p3)));
+        when(restTemplateMock
+                .execute(eq(PRE_URL+HISTORY), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(respondWith(postsListMock1));
+        when(restTemplateMock
+                .execute(eq(PRE_URL+CULTURE), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(respondWith(postsListMock2));
+
+        PostsList result = hatchDataService.getPosts(HISTORY+","+CULTURE, LIKES_FIELD, DESC, 1, 1);
+        assertEquals(result.getPosts().size(), 1);
+        assertEquals(result.getPosts().get(0).getLikes(), LIKES3);
+    }
+
+    @Test
+    public void getPostsFetchesTagsConcurrently() {
+        PostsList postsListMock = new PostsList();
+        Post p1 = new Post(ID1, AUTHOR1, AUTHOR_ID1, LIKES1, POPULARITY1, READS1, TAGS1);
+        postsListMock.setPosts(new ArrayList<Post>(Arrays.asList(p1)));
+        //Every fetch only answers once the three tags are in flight together
+        CountDownLatch inFlight = new CountDownLatch(3);
+        when(restTemplateMock
+                .execute(Mockito.startsWith(PRE_URL), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(invocation -> {
+                    inFlight.countDown();
+                    if (!inFlight.await(FETCH_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("tags were fetched one after another");
+                    }
+                    return respondWith(postsListMock).answer(invocation);
+                });
+
+        PostsList result = hatchDataService.getPosts(TECH+","+HISTORY+","+CULTURE, ID_FIELD, ASC);
+        assertEquals(result.getPosts().size(), 1);
+        assertEquals(0, inFlight.getCount());
+    }
+
+    @Test
+    public void getPostsTimesOut() {
+        hatchwaysProperties.setFetchTimeout(Duration.ofMillis(100));
+        RestTemplateBuilder restTemplateBuilderMock = Mockito.mock(RestTemplateBuilder.class);
+        when(restTemplateBuilderMock.build()).thenReturn(restTemplateMock);
+        hatchDataService = new HatchDataService(new HatchApiClient(restTemplateBuilderMock, hatchwaysProperties, postsMetrics),
+                new NoOpCacheManager(), fetchExecutor, hatchwaysProperties, postsMetrics);
+        //The fetch of "tech" never answers within the test
+        CountDownLatch never = new CountDownLatch(1);
+        when(restTemplateMock
+                .execute(eq(PRE_URL+TECH), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(invocation -> {
+                    never.await();
+                    return null;
+                });
+
+        try {
+            assertThrows(UpstreamTimeoutException.class,
+                    () -> {hatchDataService.getPosts(TECH, ID_FIELD, ASC);});
+        } finally {
+            never.countDown();
+        }
+    }
+
+    @Test
+    public void getPostsServesCachedTagsWithoutTheExecutor() {
+        hatchwaysProperties.setFetchTimeout(Duration.ofMillis(100));
+        CacheManager cacheManager = new ConcurrentMapCacheManager(HatchApiClient.TAG_POSTS_CACHE);
+        PostsList postsListMock = new PostsList();
+        postsListMock.setPosts(new ArrayList<Post>(Arrays.asList(
+                new Post(ID1, AUTHOR1, AUTHOR_ID1, LIKES1, POPULARITY1, READS1, TAGS1))));
+        cacheManager.getCache(HatchApiClient.TAG_POSTS_CACHE).put(TECH, TagPosts.of(postsListMock));
+        RestTemplateBuilder restTemplateBuilderMock = Mockito.mock(RestTemplateBuilder.class);
+        when(restTemplateBuilderMock.build()).thenReturn(restTemplateMock);
+        //The executor is busy with other fetches and never runs anything
+        hatchDataService = new HatchDataService(new HatchApiClient(restTemplateBuilderMock, hatchwaysProperties, postsMetrics),
+                cacheManager, command -> {}, hatchwaysProperties, postsMetrics);
+
+        PostsList result = hatchDataService.getPosts(TECH, ID_FIELD, ASC);
+        assertEquals(1, result.getPosts().size());
+        assertThrows(UpstreamTimeoutException.class,
+                () -> {hatchDataService.getPosts(TECH+","+HISTORY, ID_FIELD, ASC);});
+    }
+
+    @Test
+    public void getPostsSharesInFlightFetchOfSameTag() throws Exception {
+        PostsList postsListMock = new PostsList();
+        Post p1 = new Post(ID1, AUTHOR1, AUTHOR_ID1, LIKES1, POPULARITY1, READS1, TAGS1);
+        postsListMock.setPosts(new ArrayList<Post>(Arrays.asList(p1)));
+        started = new CountDownLatch(4);
+        when(restTemplateMock
+                .execute(Mockito.startsWith(PRE_URL), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(invocation -> {
+                    //The fetch only answers once every caller has started and waits for the fetches in flight
+                    if (!started.await(FETCH_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("the callers did not start");
+                    }
+                    awaitWaiting(callerThreads);
+                    return respondWith(postsListMock).answer(invocation);
+                });
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        List<Future<PostsList>> results = new ArrayList<>();
+        results.add(callers.submit(() -> { start(); return hatchDataService.getPosts(TECH, ID_FIELD, ASC); }));
+        results.add(callers.submit(() -> { start(); return hatchDataService.getPosts(TECH, LIKES_FIELD, DESC); }));
+        results.add(callers.submit(() -> { start(); return hatchDataService.getPosts(TECH+","+CULTURE, ID_FIELD, ASC); }));
+        results.add(callers.submit(() -> { start(); return hatchDataService.getPosts(CULTURE+","+TECH, LIKES_FIELD, ASC); }));
+        for (Future<PostsList> result : results) assertEquals(1, result.get().getPosts().size());
+        callers.shutdown();
+
+        verify(restTemplateMock, times(1)).execute(eq(PRE_URL+TECH), eq(HttpMethod.GET), isNull(), any());
+        verify(restTemplateMock, times(1)).execute(eq(PRE_URL+CULTURE), eq(HttpMethod.GET), isNull(), any());
+    }
+
+    @Test
+    public void getBatchFetchesEveryTagOnce() throws Exception {
+        PostsList postsListMock1 = new PostsList();
+        PostsList postsListMock2 = new PostsList();
+        Post p1 = new Post(ID1, AUTHOR1, AUTHOR_ID1, LIKES1, POPULARITY1, READS1, TAGS1);
+        Post p2 = new Post(ID2, AUTHOR2, AUTHOR_ID2, LIKES2, POPULARITY2, READS2, TAGS2);
+        Post p3 = new Post(ID3, AUTHOR3, AUTHOR_ID3, LIKES3, POPULARITY3, READS3, TAGS3);
+        postsListMock1.setPosts(new ArrayList<Post>(Arrays.asList(p2)));
+        postsListMock2.setPosts(new ArrayList<Post>(Arrays.asList(p1, p3)));
+        when(restTemplateMock
+                .execute(eq(PRE_URL+HISTORY), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(respondWith(postsListMock1));
+        when(restTemplateMock
+                .execute(eq(PRE_URL+CULTURE), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(respondWith(postsListMock2));
+
+        byte[] json = hatchDataService.getBatch(Arrays.asList(
+                new BatchQuery(CULTURE, ID_FIELD, ASC, 0, null),
+                new BatchQuery(HISTORY+","+CULTURE, LIKES_FIELD, DESC, 0, null),
+                new BatchQuery(CULTURE, "invalid", DESC, 0, null),
+                new BatchQuery(CULTURE, LIKES_FIELD, DESC, 0, 1)));
+
+        JsonNode results = new ObjectMapper().readTree(json).get("results");
+        assertEquals(4, results.size());
+        assertEquals(ID1, results.get(0).get("posts").get(0).get("id").asLong());
+        assertEquals(ID3, results.get(0).get("posts").get(1).get("id").asLong());
+        assertEquals(3, results.get(1).get("posts").size());
+        assertEquals(LIKES1, results.get(1).get("posts").get(0).get("likes").asLong());
+        assertEquals(SORT_PARAM_ERROR, results.get(2).get("error").asText());
+        assertEquals(400, results.get(2).get("status").asInt());
+        assertEquals(1, results.get(3).get("posts").size());
+        assertEquals(LIKES1, results.get(3).get("posts").get(0).get("likes").asLong());
+        verify(restTemplateMock, times(1)).execute(eq(PRE_URL+CULTURE), eq(HttpMethod.GET), isNull(), any());
+        verify(restTemplateMock, times(1)).execute(eq(PRE_URL+HISTORY), eq(HttpMethod.GET), isNull(), any());
+    }
+
+    @Test
+    public void streamBatchAnswersTheQueriesThatDoNotTimeOut() throws Exception {
+        hatchwaysProperties.setFetchTimeout(Duration.ofMillis(200));
+        RestTemplateBuilder restTemplateBuilderMock = Mockito.mock(RestTemplateBuilder.class);
+        when(restTemplateBuilderMock.build()).thenReturn(restTemplateMock);
+        hatchDataService = new HatchDataService(new HatchApiClient(restTemplateBuilderMock, hatchwaysProperties, postsMetrics),
+                new NoOpCacheManager(), fetchExecutor, hatchwaysProperties, postsMetrics);
+        PostsList postsListMock = new PostsList();
+        Post p1 = new Post(ID1, AUTHOR1, AUTHOR_ID1, LIKES1, POPULARITY1, READS1, TAGS1);
+        postsListMock.setPosts(new ArrayList<Post>(Arrays.asList(p1)));
+        when(restTemplateMock
+                .execute(eq(PRE_URL+CULTURE), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(respondWith(postsListMock));
+        //The fetch of "tech" never answers within the test
+        CountDownLatch never = new CountDownLatch(1);
+        when(restTemplateMock
+                .execute(eq(PRE_URL+TECH), eq(HttpMethod.GET), isNull(), any()))
+                .thenAnswer(invocation -> {
+                    never.await();
+                    return null;
+                });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            StreamingResponseBody body = hatchDataService.streamBatch(Arrays.asList(
+                    new BatchQuery(CULTURE, ID_FIELD, ASC, 0, null),
+                    new BatchQuery(TECH+","+CULTURE, ID_FIELD, ASC, 0, null)), true);
+            body.writeTo(out);
+        } finally {
+            never.countDown();
+        }
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(ID1, new ObjectMapper().readTree(lines[0]).get("posts").get(0).get("id").asLong());
+        assertEquals(504, new ObjectMapper().readTree(lines[1]).get("status").asInt());
+    }
+
+    @Test
+    public void getBatchWithoutQueries() {
+        Throwable thrown = assertThrows(InvalidParameterException.class,
+                () -> {hatchDataService.getBatch(new ArrayList<>());});
+        assertEquals(thrown.getMessage(), HatchDataService.QUERIES_ERROR);
+
+        hatchwaysProperties.setMaxBatchQueries(1);
+        RestTemplateBuilder restTemplateBuilderMock = Mockito.mock(RestTemplateBuilder.class);
+        when(restTemplateBuilderMock.build()).thenReturn(restTemplateMock);
+        hatchDataService = new HatchDataService(new HatchApiClient(restTemplateBuilderMock, hatchwaysProperties, postsMetrics),
+                new NoOpCacheManager(), fetchExecutor, hatchwaysProperties, postsMetrics);
+        thrown = assertThrows(InvalidParameterException.class,
+                () -> {hatchDataService.getBatch(Arrays.asList(new BatchQuery(), new BatchQuery()));});
+        assertEquals(thrown.getMessage(), HatchDataService.TOO_MANY_QUERIES_ERROR);
+    }
+}
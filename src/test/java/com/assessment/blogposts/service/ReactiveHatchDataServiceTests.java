@@ -0,0 +1,152 @@
+package com.assessment.blogposts.service;
+
+import com.assessment.blogposts.config.HatchwaysProperties;
+import com.assessment.blogposts.exceptions.InvalidParameterException;
+import com.assessment.blogposts.exceptions.UpstreamTimeoutException;
+import com.assessment.blogposts.exceptions.UpstreamUnavailableException;
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.model.PostsList;
+import com.assessment.blogposts.support.HatchwaysStub;
+import com.assessment.blogposts.util.PostsMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ReactiveHatchDataServiceTests {
+    private static final String TECH = "tech";
+    private static final String CULTURE = "culture";
+    private static final String HISTORY = "history";
+
+    private static final String ID_FIELD = "id";
+    private static final String LIKES_FIELD = "likes";
+
+    private static final String ASC = "asc";
+    private static final String DESC = "desc";
+
+    private static final String TAGS_PARAM_ERROR = "tags parameter is required";
+
+    private static final List<String> TAGS1 =
+            new ArrayList<>(Arrays.asList(TECH, CULTURE));
+    private static final List<String> TAGS2 =
+            new ArrayList<>(Arrays.asList(TECH, HISTORY));
+
+    HatchwaysStub hatchwaysStub;
+    HatchwaysProperties hatchwaysProperties;
+    ReactiveHatchDataService reactiveHatchDataService;
+    PostsMetrics postsMetrics = new PostsMetrics(new SimpleMeterRegistry());
+
+    @BeforeEach
+    public void init() throws Exception {
+        hatchwaysStub = HatchwaysStub.start();
+        hatchwaysStub.setPosts(TECH,
+                new Post(1, "Hatways1", 1, 2000, 0.78f, 5000, TAGS1),
+                new Post(2, "Hatways2", 2, 1000, 0.85f, 8000, TAGS2));
+        hatchwaysStub.setPosts(HISTORY,
+                new Post(2, "Hatways2", 2, 1000, 0.85f, 8000, TAGS2),
+                new Post(3, "Hatways3", 3, 1200, 0.92f, 2200, TAGS2));
+        hatchwaysProperties = new HatchwaysProperties();
+        hatchwaysProperties.setBaseUrl(hatchwaysStub.getBaseUrl());
+        hatchwaysProperties.getResilience().setRetryBackoff(Duration.ofMillis(10));
+        reactiveHatchDataService = new ReactiveHatchDataService(
+                WebClient.builder(), new ConcurrentMapCacheManager(HatchApiClient.TAG_POSTS_CACHE),
+                new HatchApiClient(new RestTemplateBuilder(), hatchwaysProperties, postsMetrics), hatchwaysProperties, postsMetrics);
+    }
+
+    @AfterEach
+    public void destroy() {
+        hatchwaysStub.close();
+    }
+
+    @Test
+    public void getPostsTwoTagsLikesDesc() {
+        PostsList result = reactiveHatchDataService.getPosts(TECH+","+HISTORY, LIKES_FIELD, DESC).block();
+        assertEquals(3, result.getPosts().size());
+        assertEquals(1, result.getPosts().get(0).getId());
+        assertEquals(3, result.getPosts().get(1).getId());
+        assertEquals(2, result.getPosts().get(2).getId());
+    }
+
+    @Test
+    public void getPostsFromCache() {
+        reactiveHatchDataService.getPosts(TECH, ID_FIELD, ASC).block();
+        PostsList result = reactiveHatchDataService.getPosts(TECH+","+HISTORY, ID_FIELD, DESC).block();
+        assertEquals(3, result.getPosts().get(0).getId());
+        assertEquals(1, hatchwaysStub.getRequestCount(TECH));
+        assertEquals(1, hatchwaysStub.getRequestCount(HISTORY));
+    }
+
+    @Test
+    public void getPostsConcurrentlyWithoutBlocking() {
+        hatchwaysStub.setLatency(Duration.ofMillis(200));
+        List<PostsList> results = Flux.range(0, 2000)
+                .flatMap(i -> reactiveHatchDataService.getPosts(i % 2 == 0 ? TECH : TECH+","+HISTORY, LIKES_FIELD, ASC), 2000)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        assertEquals(2000, results.size());
+        assertEquals(1, hatchwaysStub.getRequestCount(TECH));
+        assertEquals(1, hatchwaysStub.getRequestCount(HISTORY));
+    }
+
+    @Test
+    public void getPostsWithEmptyTag() {
+        Throwable thrown = assertThrows(InvalidParameterException.class,
+                () -> {reactiveHatchDataService.getPosts("", LIKES_FIELD, DESC).block();});
+        assertEquals(thrown.getMessage(), TAGS_PARAM_ERROR);
+    }
+
+    @Test
+    public void getPostsTimesOut() {
+        hatchwaysStub.setLatency(Duration.ofMillis(1000));
+        hatchwaysProperties.setFetchTimeout(Duration.ofMillis(100));
+        reactiveHatchDataService = new ReactiveHatchDataService(
+                WebClient.builder(), new ConcurrentMapCacheManager(HatchApiClient.TAG_POSTS_CACHE),
+                new HatchApiClient(new RestTemplateBuilder(), hatchwaysProperties, postsMetrics), hatchwaysProperties, postsMetrics);
+
+        assertThrows(UpstreamTimeoutException.class,
+                () -> {reactiveHatchDataService.getPosts(TECH, ID_FIELD, ASC).block();});
+    }
+
+    @Test
+    public void getPostsRetriesFailedCall() {
+        hatchwaysStub.failNext(2, 503);
+
+        PostsList result = reactiveHatchDataService.getPosts(TECH, ID_FIELD, ASC).block();
+        assertEquals(2, result.getPosts().size());
+        assertEquals(3, hatchwaysStub.getRequestCount(TECH));
+    }
+
+    @Test
+    public void getPostsFailsFastWhileCircuitIsOpen() {
+        HatchwaysProperties.Resilience resilience = hatchwaysProperties.getResilience();
+        resilience.setMaxAttempts(1);
+        resilience.setSlidingWindowSize(4);
+        resilience.setMinimumCalls(4);
+        resilience.setOpenDuration(Duration.ofMinutes(1));
+        reactiveHatchDataService = new ReactiveHatchDataService(
+                WebClient.builder(), new ConcurrentMapCacheManager(HatchApiClient.TAG_POSTS_CACHE),
+                new HatchApiClient(new RestTemplateBuilder(), hatchwaysProperties, postsMetrics), hatchwaysProperties, postsMetrics);
+        hatchwaysStub.setErrorRate(1, 500);
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(WebClientResponseException.class,
+                    () -> {reactiveHatchDataService.getPosts(TECH, ID_FIELD, ASC).block();});
+        }
+        assertThrows(UpstreamUnavailableException.class,
+                () -> {reactiveHatchDataService.getPosts(TECH, ID_FIELD, ASC).block();});
+        assertEquals(4, hatchwaysStub.getRequestCount(TECH));
+    }
+}
@@ -0,0 +1,159 @@
+package com.assessment.blogposts.service;
+
+import com.assessment.blogposts.config.CacheConfig;
+import com.assessment.blogposts.config.HatchwaysProperties;
+import com.assessment.blogposts.model.TagPosts;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TagPostsSnapshotServiceTests {
+    private static final String TECH = "tech";
+    private static final String HISTORY = "history";
+    private static final Instant SAVED_AT = Instant.parse("2026-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    HatchwaysProperties hatchwaysProperties;
+    AtomicInteger loads;
+
+    @BeforeEach
+    public void setup() {
+        hatchwaysProperties = new HatchwaysProperties();
+        hatchwaysProperties.getSnapshot().setPath(directory.resolve("posts.snapshot").toString());
+        loads = new AtomicInteger();
+    }
+
+    //A cache manager like the application's, loading and refreshing on the calling thread
+    private CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheLoader(tag -> {
+            loads.incrementAndGet();
+            return tagPosts(100);
+        });
+        cacheManager.setCaffeine(new CacheConfig().caffeine(hatchwaysProperties, Runnable::run));
+        cacheManager.setCacheNames(List.of(HatchApiClient.TAG_POSTS_CACHE));
+        return cacheManager;
+    }
+
+    private TagPostsSnapshotService snapshotService(CacheManager cacheManager, Instant now) {
+        return new TagPostsSnapshotService(cacheManager, hatchwaysProperties, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static TagPosts tagPosts(long id) {
+        return TagPosts.builder().add(id, "Hatways", 1, id, 0.5f, id, List.of(TECH)).build();
+    }
+
+    //To save a cache of two tags at SAVED_AT
+    private void saveTwoTags() {
+        CacheManager cacheManager = cacheManager();
+        cacheManager.getCache(HatchApiClient.TAG_POSTS_CACHE).put(TECH, tagPosts(1));
+        cacheManager.getCache(HatchApiClient.TAG_POSTS_CACHE).put(HISTORY, tagPosts(2));
+        assertTrue(snapshotService(cacheManager, SAVED_AT).save());
+    }
+
+    @Test
+    public void restoreSavedTagsWithoutFetching() {
+        saveTwoTags();
+        CacheManager restarted = cacheManager();
+
+        assertEquals(2, snapshotService(restarted, SAVED_AT.plusSeconds(60)).restore());
+        TagPosts tech = restarted.getCache(HatchApiClient.TAG_POSTS_CACHE).get(TECH, TagPosts.class);
+        assertEquals(1, tech.size());
+        assertEquals(1, tech.getId(0));
+        assertEquals(2, restarted.getCache(HatchApiClient.TAG_POSTS_CACHE).get(HISTORY, TagPosts.class).getId(0));
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void skipTagsOlderThanMaxAge() {
+        saveTwoTags();
+        CacheManager restarted = cacheManager();
+
+        assertEquals(0, snapshotService(restarted, SAVED_AT.plus(Duration.ofHours(2))).restore());
+        assertNull(((Cache<?, ?>) restarted.getCache(HatchApiClient.TAG_POSTS_CACHE).getNativeCache()).asMap().get(TECH));
+
+        hatchwaysProperties.getSnapshot().setMaxAge(Duration.ofMinutes(30));
+        assertEquals(0, snapshotService(restarted, SAVED_AT.plus(Duration.ofMinutes(45))).restore());
+        hatchwaysProperties.getSnapshot().setMaxAge(null);
+        assertEquals(2, snapshotService(restarted, SAVED_AT.plus(Duration.ofMinutes(45))).restore());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void expireRestoredTagsAtTheirFetchTime() {
+        hatchwaysProperties.getCache().setRefreshAfterWrite(null);
+        saveTwoTags();
+        CacheManager restarted = cacheManager();
+
+        //Fetched 50 minutes before the restart, the tag has 10 minutes left of the hour it is cached for
+        assertEquals(2, snapshotService(restarted, SAVED_AT.plus(Duration.ofMinutes(50))).restore());
+        Duration remaining = ((Cache<Object, Object>) restarted.getCache(HatchApiClient.TAG_POSTS_CACHE).getNativeCache())
+                .policy().expireVariably().flatMap(expiration -> expiration.getExpiresAfter(TECH)).orElseThrow();
+        assertTrue(remaining.compareTo(Duration.ofMinutes(10)) <= 0, remaining.toString());
+        assertTrue(remaining.compareTo(Duration.ofMinutes(9)) > 0, remaining.toString());
+    }
+
+    @Test
+    public void refreshTagsOlderThanRefreshAfterWrite() {
+        saveTwoTags();
+        CacheManager restarted = cacheManager();
+
+        assertEquals(2, snapshotService(restarted, SAVED_AT.plus(Duration.ofMinutes(20))).restore());
+        assertEquals(2, loads.get());
+        assertEquals(100, restarted.getCache(HatchApiClient.TAG_POSTS_CACHE).get(TECH, TagPosts.class).getId(0));
+    }
+
+    @Test
+    public void keepTheFetchTimeOfRestoredTags() {
+        saveTwoTags();
+        CacheManager restarted = cacheManager();
+        TagPostsSnapshotService snapshotService = snapshotService(restarted, SAVED_AT.plus(Duration.ofMinutes(5)));
+        snapshotService.restore();
+        restarted.getCache(HatchApiClient.TAG_POSTS_CACHE).evict(HISTORY);
+        assertTrue(snapshotService.save());
+
+        //Saved again after 5 minutes, the tech tag is 62 minutes old an hour later and not restored anymore
+        assertEquals(0, snapshotService(cacheManager(), SAVED_AT.plus(Duration.ofMinutes(62))).restore());
+    }
+
+    @Test
+    public void saveOnlyWhenTheTagsChanged() {
+        CacheManager cacheManager = cacheManager();
+        TagPostsSnapshotService snapshotService = snapshotService(cacheManager, SAVED_AT);
+        TagPosts tech = tagPosts(1);
+        cacheManager.getCache(HatchApiClient.TAG_POSTS_CACHE).put(TECH, tech);
+
+        assertTrue(snapshotService.save());
+        assertFalse(snapshotService.save());
+        cacheManager.getCache(HatchApiClient.TAG_POSTS_CACHE).put(TECH, tagPosts(2));
+        assertTrue(snapshotService.save());
+    }
+
+    @Test
+    public void startColdFromMissingOrDamagedSnapshots() throws IOException {
+        assertEquals(0, snapshotService(cacheManager(), SAVED_AT).restore());
+
+        Files.write(directory.resolve("posts.snapshot"), new byte[]{1, 2, 3});
+        assertEquals(0, snapshotService(cacheManager(), SAVED_AT).restore());
+    }
+}
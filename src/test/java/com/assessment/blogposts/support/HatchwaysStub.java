@@ -0,0 +1,172 @@
+package com.assessment.blogposts.support;
+
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.model.PostsList;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The local stand-in of the hatchways api for tests, serving the posts of every tag
+ * from memory on a random local port, with an optional latency and random jitter for every response.
+ * With setGeneratedPosts() every tag without posts of its own gets synthetic posts, see PostsGenerator.postsOf.
+ * The response is gzip compressed when the request accepts it.
+ * Faults are injected with failNext() for the next requests and setErrorRate() for a share of all requests.
+ */
+public class HatchwaysStub implements AutoCloseable {
+    public static final String PATH = "/assessment/blog/posts";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, byte[]> tagResponses = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger gzipResponses = new AtomicInteger();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration jitter = Duration.ZERO;
+    private volatile int generatedPostsPerTag;
+    private volatile long generatedIdSpace;
+    private final Map<String, byte[]> generatedResponses = new ConcurrentHashMap<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private volatile int failureStatus = 503;
+    private volatile double errorRate;
+
+    private HatchwaysStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+    }
+
+    public static HatchwaysStub start() throws IOException {
+        HatchwaysStub stub = new HatchwaysStub();
+        stub.server.start();
+        return stub;
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    public void setPosts(String tag, Post... posts) throws IOException {
+        PostsList postsList = new PostsList();
+        postsList.setPosts(new ArrayList<>(Arrays.asList(posts)));
+        tagResponses.put(tag, objectMapper.writeValueAsBytes(postsList));
+    }
+
+    public void setLatency(Duration latency) {
+        setLatency(latency, Duration.ZERO);
+    }
+
+    //To delay every response by the latency plus a random time up to the jitter
+    public void setLatency(Duration latency, Duration jitter) {
+        this.latency = latency;
+        this.jitter = jitter;
+    }
+
+    //To answer the tags without posts of their own with "postsPerTag" posts whose ids are from 1 to "idSpace"
+    public void setGeneratedPosts(int postsPerTag, long idSpace) {
+        generatedResponses.clear();
+        this.generatedIdSpace = idSpace;
+        this.generatedPostsPerTag = postsPerTag;
+    }
+
+    //To answer the next "count" requests with the error status
+    public void failNext(int count, int status) {
+        this.failureStatus = status;
+        failuresLeft.set(count);
+    }
+
+    //To answer this share of the requests, from 0 to 1, with the error status
+    public void setErrorRate(double errorRate, int status) {
+        this.failureStatus = status;
+        this.errorRate = errorRate;
+    }
+
+    public int getRequestCount(String tag) {
+        AtomicInteger count = requestCounts.get(tag);
+        return count == null ? 0 : count.get();
+    }
+
+    public int getGzipResponseCount() {
+        return gzipResponses.get();
+    }
+
+    //The number of different client connections the requests came on
+    public int getConnectionCount() {
+        return clientPorts.size();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        String query = exchange.getRequestURI().getQuery();
+        String tag = query == null ? "" : query.replaceFirst("^tag=", "");
+        requestCounts.computeIfAbsent(tag, t -> new AtomicInteger()).incrementAndGet();
+        try {
+            long jitterMillis = jitter.toMillis();
+            Thread.sleep(latency.toMillis() + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0
+                || (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate)) {
+            exchange.sendResponseHeaders(failureStatus, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] body = tagResponses.get(tag);
+        if (body == null) body = generatedPostsPerTag > 0 ? generatedResponse(tag) : "{\"posts\":[]}".getBytes();
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            gzipResponses.incrementAndGet();
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private byte[] generatedResponse(String tag) {
+        return generatedResponses.computeIfAbsent(tag, t -> {
+            PostsList postsList = new PostsList();
+            postsList.setPosts(PostsGenerator.postsOf(t, generatedPostsPerTag, generatedIdSpace));
+            try {
+                return objectMapper.writeValueAsBytes(postsList);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
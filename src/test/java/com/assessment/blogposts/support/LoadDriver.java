@@ -0,0 +1,156 @@
+package com.assessment.blogposts.support;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * A closed-loop load generator: "concurrency" threads send the requests one after the other, each picking
+ * a random request of the workload, first for the warmup and then for the measured duration.
+ * Every thread draws its requests from its own Random seeded from the seed of the driver and its index,
+ * so a run with the same seed and concurrency sends the same sequence of requests from every thread.
+ * The latency of every measured request is kept, so the percentiles are exact and not estimated.
+ * A request failing or answered with another status than 200 counts as an error and not as a latency.
+ */
+public class LoadDriver {
+    private final HttpClient httpClient;
+    private final List<HttpRequest> workload;
+    private final long seed;
+
+    public LoadDriver(List<URI> uris, long seed) {
+        this.seed = seed;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        this.workload = new ArrayList<>(uris.size());
+        for (URI uri : uris) workload.add(HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).build());
+    }
+
+    //To run the workload at the concurrency, returning the latencies and throughput of the measured part
+    public Report run(int concurrency, Duration warmup, Duration duration) throws InterruptedException {
+        Worker[] workers = new Worker[concurrency];
+        Thread[] threads = new Thread[concurrency];
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        for (int i = 0; i < concurrency; i++) {
+            workers[i] = new Worker(new Random(seed + i), measureFrom, end);
+            threads[i] = new Thread(workers[i], "load-driver-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        int requests = 0;
+        int errors = 0;
+        for (Worker worker : workers) {
+            requests += worker.count;
+            errors += worker.errors;
+        }
+        long[] latencies = new long[requests];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            offset += worker.count;
+        }
+        Arrays.sort(latencies);
+        return new Report(concurrency, latencies, errors, duration);
+    }
+
+    //A thread of the load, keeping the latencies of its measured requests in nanoseconds
+    private class Worker implements Runnable {
+        private final Random random;
+        private final long measureFrom;
+        private final long end;
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+
+        Worker(Random random, long measureFrom, long end) {
+            this.random = random;
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            for (long now = System.nanoTime(); now < end; now = System.nanoTime()) {
+                HttpRequest request = workload.get(random.nextInt(workload.size()));
+                boolean ok;
+                try {
+                    ok = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                } catch (Exception e) {
+                    ok = false;
+                }
+                long latency = System.nanoTime() - now;
+                if (now < measureFrom) continue;
+                if (!ok) {
+                    errors++;
+                    continue;
+                }
+                if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = latency;
+            }
+        }
+    }
+
+    /**
+     * The result of one run, the throughput counts the successful requests only.
+     */
+    public static class Report {
+        private final int concurrency;
+        private final long[] latencies;
+        private final int errors;
+        private final Duration duration;
+
+        Report(int concurrency, long[] latencies, int errors, Duration duration) {
+            this.concurrency = concurrency;
+            this.latencies = latencies;
+            this.errors = errors;
+            this.duration = duration;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public int getRequests() {
+            return latencies.length;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public double getErrorRate() {
+            int total = latencies.length + errors;
+            return total == 0 ? 0 : (double) errors / total;
+        }
+
+        public double getThroughput() {
+            return latencies.length / (duration.toNanos() / 1e9);
+        }
+
+        //The latency under which this share of the requests, from 0 to 1, were answered
+        public Duration percentile(double quantile) {
+            if (latencies.length == 0) return Duration.ZERO;
+            int index = (int) Math.ceil(quantile * latencies.length) - 1;
+            return Duration.ofNanos(latencies[Math.max(0, Math.min(index, latencies.length - 1))]);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("concurrency %4d: %8.1f req/s, p50 %7.2f ms, p99 %7.2f ms, p999 %7.2f ms, %d errors",
+                    concurrency, getThroughput(), millis(percentile(0.5)), millis(percentile(0.99)),
+                    millis(percentile(0.999)), errors);
+        }
+
+        private static double millis(Duration duration) {
+            return duration.toNanos() / 1e6;
+        }
+    }
+}
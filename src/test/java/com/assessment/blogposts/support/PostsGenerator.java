@@ -0,0 +1,85 @@
+package com.assessment.blogposts.support;
+
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.model.PostsList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+
+/**
+ * The synthetic posts of the benchmarks, the same for the same seed.
+ * Every tag has "postsPerTag" posts, the "overlap" share of which is shared by all the tags,
+ * like a post carrying several of the requested tags, and the rest only belongs to that tag.
+ * The likes, reads and popularity are random, with repeated values so the ties are broken by id.
+ * postsOf() draws the posts of a tag from a shared range of ids instead, the same id being the same post in every tag.
+ */
+public class PostsGenerator {
+    private static final String[] AUTHORS = {"Rylee Paul", "Zackery Turner", "Elisha Friedman", "Trevon Rodriguez",
+            "Jon Abbott", "Jaden Bryant", "Ahmad Dunn", "Lainey Ritter", "Bryson Bowers", "Adalyn Blevins"};
+
+    private final Random random;
+    private long nextId = 1;
+
+    public PostsGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    //The names of "tagCount" tags, "tag0" to "tag<tagCount - 1>"
+    public static String[] tagNames(int tagCount) {
+        String[] tags = new String[tagCount];
+        for (int i = 0; i < tagCount; i++) tags[i] = "tag" + i;
+        return tags;
+    }
+
+    //To get the posts of every tag, sharing the "overlap" share of the posts between all the tags
+    public List<PostsList> tagLists(int tagCount, int postsPerTag, double overlap) {
+        String[] tags = tagNames(tagCount);
+        int sharedCount = (int) Math.round(postsPerTag * overlap);
+        List<Post> shared = posts(sharedCount, Arrays.asList(tags));
+        List<PostsList> lists = new ArrayList<>(tagCount);
+        for (String tag : tags) {
+            List<Post> posts = new ArrayList<>(postsPerTag);
+            posts.addAll(shared);
+            posts.addAll(posts(postsPerTag - sharedCount, Collections.singletonList(tag)));
+            //The external api does not return the posts in any order
+            Collections.shuffle(posts, random);
+            PostsList postsList = new PostsList();
+            postsList.setPosts(posts);
+            lists.add(postsList);
+        }
+        return lists;
+    }
+
+    //To get "count" posts of the tag with distinct ids from 1 to "idSpace", the same for the same tag,
+    //the tags overlap more as "count" gets closer to "idSpace"
+    public static List<Post> postsOf(String tag, int count, long idSpace) {
+        Random random = new Random(tag.hashCode());
+        Set<Long> ids = new LinkedHashSet<>();
+        while (ids.size() < Math.min(count, idSpace)) ids.add(1 + (long) (random.nextDouble() * idSpace));
+        List<Post> posts = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            Random values = new Random(id);
+            int author = values.nextInt(AUTHORS.length);
+            posts.add(new Post(id, AUTHORS[author], author + 1, values.nextInt(1000),
+                    values.nextInt(100) / 100f, values.nextInt(100_000), Collections.singletonList(tag)));
+        }
+        return posts;
+    }
+
+    //To get "count" new posts with the tags
+    public List<Post> posts(int count, List<String> tags) {
+        List<Post> posts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int author = random.nextInt(AUTHORS.length);
+            posts.add(new Post(nextId++, AUTHORS[author], author + 1, random.nextInt(1000),
+                    random.nextInt(100) / 100f, random.nextInt(100_000), tags));
+        }
+        return posts;
+    }
+}
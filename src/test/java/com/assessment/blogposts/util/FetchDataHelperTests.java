@@ -0,0 +1,264 @@
+package com.assessment.blogposts.util;
+
+import com.assessment.blogposts.exceptions.InvalidParameterException;
+import com.assessment.blogposts.model.Direction;
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.model.PostsList;
+import com.assessment.blogposts.model.PostsQuery;
+import com.assessment.blogposts.model.SortField;
+import com.assessment.blogposts.model.TagPosts;
+import com.assessment.blogposts.support.PostsGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FetchDataHelperTests {
+    private static final String ID_FIELD = "id";
+    private static final String READS_FIELD = "reads";
+    private static final String LIKES_FIELD = "likes";
+    private static final String POPULARITY_FIELD = "popularity";
+
+    private static final String ASC = "asc";
+    private static final String DESC = "desc";
+
+    private static final List<String> TAGS = Collections.singletonList("tech");
+
+    FetchDataHelper fetchDataHelper = new FetchDataHelper();
+
+    private Post post(long id, long likes, float popularity, long reads) {
+        return new Post(id, "Hatways" + id, id, likes, popularity, reads, TAGS);
+    }
+
+    private TagPosts tagPosts(Post... posts) {
+        PostsList postsList = new PostsList();
+        postsList.setPosts(new ArrayList<>(Arrays.asList(posts)));
+        return TagPosts.of(postsList);
+    }
+
+    private PostsQuery query(String sortBy, String direction) {
+        return query(sortBy, direction, 0, null);
+    }
+
+    private PostsQuery query(String sortBy, String direction, int offset, Integer limit) {
+        return fetchDataHelper.parseQuery(TAGS.get(0), sortBy, direction, offset, limit);
+    }
+
+    private List<Long> ids(PostsList postsList) {
+        return postsList.getPosts().stream().map(Post::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void sortOneTagByEveryField() {
+        TagPosts tech = tagPosts(post(1, 30, 0.2f, 500), post(2, 10, 0.9f, 700), post(3, 20, 0.5f, 100));
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech), query(ID_FIELD, ASC))));
+        assertEquals(Arrays.asList(3L, 2L, 1L), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech), query(ID_FIELD, DESC))));
+        assertEquals(Arrays.asList(2L, 3L, 1L), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech), query(LIKES_FIELD, ASC))));
+        assertEquals(Arrays.asList(2L, 1L, 3L), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech), query(READS_FIELD, DESC))));
+        assertEquals(Arrays.asList(1L, 3L, 2L), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech), query(POPULARITY_FIELD, ASC))));
+    }
+
+    @Test
+    public void mergeTagsWithoutDuplicates() {
+        TagPosts tech = tagPosts(post(1, 30, 0.2f, 500), post(2, 10, 0.9f, 700), post(4, 40, 0.1f, 300));
+        TagPosts history = tagPosts(post(2, 10, 0.9f, 700), post(3, 20, 0.5f, 100));
+        TagPosts culture = tagPosts(post(4, 40, 0.1f, 300), post(1, 30, 0.2f, 500), post(5, 25, 0.6f, 900));
+        List<TagPosts> lists = Arrays.asList(tech, history, culture);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), ids(fetchDataHelper.mergeAndSortPosts(lists, query(ID_FIELD, ASC))));
+        assertEquals(Arrays.asList(4L, 1L, 5L, 3L, 2L), ids(fetchDataHelper.mergeAndSortPosts(lists, query(LIKES_FIELD, DESC))));
+        assertEquals(Arrays.asList(3L, 4L, 1L, 2L, 5L), ids(fetchDataHelper.mergeAndSortPosts(lists, query(READS_FIELD, ASC))));
+        assertEquals(Arrays.asList(2L, 5L, 3L, 1L, 4L), ids(fetchDataHelper.mergeAndSortPosts(lists, query(POPULARITY_FIELD, DESC))));
+    }
+
+    @Test
+    public void mergeTagsWithEqualValuesById() {
+        TagPosts tech = tagPosts(post(3, 10, 0.5f, 100), post(1, 10, 0.5f, 100));
+        TagPosts history = tagPosts(post(2, 10, 0.5f, 100), post(3, 10, 0.5f, 100));
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech, history), query(LIKES_FIELD, ASC))));
+        assertEquals(Arrays.asList(3L, 2L, 1L), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech, history), query(LIKES_FIELD, DESC))));
+    }
+
+    @Test
+    public void mergeOtherVersionsOfAPostOnce() {
+        TagPosts tech = tagPosts(post(7001, 10, 0.5f, 100), post(7003, 20, 0.5f, 100));
+        TagPosts history = tagPosts(post(7001, 50, 0.5f, 100), post(7002, 30, 0.5f, 100), post(7003, 20, 0.5f, 100));
+        List<TagPosts> lists = Arrays.asList(tech, history);
+
+        List<Post> ascending = fetchDataHelper.mergeAndSortPosts(lists, query(LIKES_FIELD, ASC)).getPosts();
+        assertEquals(Arrays.asList(7001L, 7003L, 7002L), ascending.stream().map(Post::getId).collect(Collectors.toList()));
+        assertEquals(10, ascending.get(0).getLikes());
+        assertEquals(Arrays.asList(7002L, 7003L, 7001L), ids(fetchDataHelper.mergeAndSortPosts(lists, query(LIKES_FIELD, DESC))));
+        assertEquals(Arrays.asList(7003L, 7002L), ids(fetchDataHelper.mergeAndSortPosts(lists, query(LIKES_FIELD, ASC, 1, 5))));
+    }
+
+    @Test
+    public void mergeEmptyTags() {
+        TagPosts tech = tagPosts(post(1, 30, 0.2f, 500));
+        TagPosts empty = TagPosts.of(new PostsList());
+
+        assertEquals(Arrays.asList(1L), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(empty, tech, empty), query(ID_FIELD, DESC))));
+        assertEquals(Collections.emptyList(), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(empty), query(ID_FIELD, ASC))));
+    }
+
+    @Test
+    public void sortedPostsAreReadOnly() {
+        TagPosts tech = tagPosts(post(1, 30, 0.2f, 500), post(2, 10, 0.9f, 700));
+        TagPosts history = tagPosts(post(3, 20, 0.5f, 100));
+
+        List<Post> single = fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech), query(LIKES_FIELD, ASC)).getPosts();
+        List<Post> merged = fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech, history), query(LIKES_FIELD, ASC)).getPosts();
+        assertThrows(UnsupportedOperationException.class, () -> single.set(0, single.get(1)));
+        assertThrows(UnsupportedOperationException.class, () -> merged.remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> single.get(0).getTags().add("history"));
+    }
+
+    @Test
+    public void shareTagBetweenConcurrentSorts() throws Exception {
+        Post[] posts = new Post[1000];
+        for (int i = 0; i < posts.length; i++) {
+            posts[i] = post(i, (i * 7919) % 1000, ((i * 104729) % 1000) / 1000f, (i * 31) % 1000);
+        }
+        TagPosts shared = tagPosts(posts);
+        String[] fields = {ID_FIELD, READS_FIELD, LIKES_FIELD, POPULARITY_FIELD};
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String field = fields[i % fields.length];
+            String direction = i % 2 == 0 ? ASC : DESC;
+            results.add(executor.submit(() -> {
+                List<Post> sorted = fetchDataHelper.mergeAndSortPosts(Arrays.asList(shared), query(field, direction)).getPosts();
+                List<Post> expected = new ArrayList<>(Arrays.asList(posts));
+                expected.sort(SortField.fromParam(field)::compare);
+                if (direction.equals(DESC)) Collections.reverse(expected);
+                return expected.stream().map(Post::getId).collect(Collectors.toList())
+                        .equals(sorted.stream().map(Post::getId).collect(Collectors.toList()));
+            }));
+        }
+        for (Future<Boolean> result : results) assertEquals(true, result.get());
+        executor.shutdown();
+        assertEquals(Arrays.asList(0L, 1L, 2L), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(shared), query(ID_FIELD, ASC))).subList(0, 3));
+    }
+
+    @Test
+    public void pageOfOneTag() {
+        TagPosts tech = tagPosts(post(1, 30, 0.2f, 500), post(2, 10, 0.9f, 700), post(3, 20, 0.5f, 100));
+
+        assertEquals(Arrays.asList(1L, 3L), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech), query(LIKES_FIELD, DESC, 0, 2))));
+        assertEquals(Arrays.asList(3L, 2L), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech), query(LIKES_FIELD, DESC, 1, 5))));
+        assertEquals(Collections.emptyList(), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech), query(LIKES_FIELD, DESC, 3, 1))));
+        assertEquals(Collections.emptyList(), ids(fetchDataHelper.mergeAndSortPosts(Arrays.asList(tech), query(LIKES_FIELD, DESC, 0, 0))));
+    }
+
+    @Test
+    public void pageOfMergedTags() {
+        TagPosts tech = tagPosts(post(1, 30, 0.2f, 500), post(2, 10, 0.9f, 700), post(4, 40, 0.1f, 300));
+        TagPosts history = tagPosts(post(2, 10, 0.9f, 700), post(3, 20, 0.5f, 100));
+        TagPosts culture = tagPosts(post(4, 40, 0.1f, 300), post(1, 30, 0.2f, 500), post(5, 25, 0.6f, 900));
+        List<TagPosts> lists = Arrays.asList(tech, history, culture);
+
+        assertEquals(Arrays.asList(4L, 1L), ids(fetchDataHelper.mergeAndSortPosts(lists, query(LIKES_FIELD, DESC, 0, 2))));
+        assertEquals(Arrays.asList(5L, 3L), ids(fetchDataHelper.mergeAndSortPosts(lists, query(LIKES_FIELD, DESC, 2, 2))));
+        assertEquals(Arrays.asList(2L), ids(fetchDataHelper.mergeAndSortPosts(lists, query(LIKES_FIELD, DESC, 4, 2))));
+        assertEquals(Arrays.asList(3L, 4L, 5L), ids(fetchDataHelper.mergeAndSortPosts(lists, query(ID_FIELD, ASC, 2, null))));
+        assertEquals(Collections.emptyList(), ids(fetchDataHelper.mergeAndSortPosts(lists, query(ID_FIELD, ASC, 5, 2))));
+    }
+
+    @Test
+    public void keepPostsByColumnWithSharedTagsAndAuthors() {
+        TagPosts tech = tagPosts(new Post(1, new String("Hatways"), 10, 2, 0.5f, 3, Arrays.asList("tech", "history")));
+        TagPosts history = tagPosts(new Post(2, new String("Hatways"), 10, 4, 0.25f, 6, Arrays.asList("tech", "history")));
+
+        Post first = tech.getPost(0);
+        Post second = history.getPost(0);
+        assertEquals(1, first.getId());
+        assertEquals(10, first.getAuthorId());
+        assertEquals(2, first.getLikes());
+        assertEquals(0.5f, first.getPopularity());
+        assertEquals(3, first.getReads());
+        assertSame(first.getAuthor(), second.getAuthor());
+        assertSame(first.getTags(), second.getTags());
+    }
+
+    @Test
+    public void writeMergedPostsAsJackson() throws Exception {
+        TagPosts tech = tagPosts(post(1, 30, 0.2f, 500), post(2, 10, 0.9f, 700), post(4, 40, 0.1f, 300));
+        TagPosts history = tagPosts(post(2, 10, 0.9f, 700), new Post(3, "Hat\"ways", 3, 20, 0.5f, 100, null));
+        List<TagPosts> lists = Arrays.asList(tech, history);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        fetchDataHelper.writeJson(lists, query(LIKES_FIELD, DESC, 1, 2), json);
+        assertEquals(objectMapper.writeValueAsString(fetchDataHelper.mergeAndSortPosts(lists, query(LIKES_FIELD, DESC, 1, 2))),
+                json.toString(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        fetchDataHelper.writeNdjson(Arrays.asList(tech), query(ID_FIELD, ASC, 0, null), ndjson);
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(objectMapper.writeValueAsString(tech.sortedView(SortField.ID, true).get(i)), lines[i]);
+        }
+    }
+
+    @Test
+    public void mergeOffHeapPostsLikeHeapPosts() throws IOException {
+        List<PostsList> postsLists = new PostsGenerator(7).tagLists(3, 200, 0.5);
+        List<TagPosts> heap = new ArrayList<>();
+        List<TagPosts> offHeap = new ArrayList<>();
+        for (PostsList postsList : postsLists) {
+            heap.add(TagPosts.of(postsList));
+            offHeap.add(TagPosts.of(postsList, true));
+        }
+        assertTrue(offHeap.get(0).isOffHeap());
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        for (SortField field : SortField.values()) {
+            for (String direction : Arrays.asList(ASC, DESC)) {
+                PostsQuery query = fetchDataHelper.parseQuery("tag0,tag1,tag2", field.getParam(), direction, 10, 50);
+                ByteArrayOutputStream heapJson = new ByteArrayOutputStream();
+                ByteArrayOutputStream offHeapJson = new ByteArrayOutputStream();
+                fetchDataHelper.writeJson(heap, query, heapJson);
+                fetchDataHelper.writeJson(offHeap, query, offHeapJson);
+                assertArrayEquals(heapJson.toByteArray(), offHeapJson.toByteArray());
+                assertEquals(objectMapper.writeValueAsString(fetchDataHelper.mergeAndSortPosts(heap, query)),
+                        objectMapper.writeValueAsString(fetchDataHelper.mergeAndSortPosts(offHeap, query)));
+            }
+        }
+    }
+
+    @Test
+    public void parseQueryWithCanonicalTags() {
+        PostsQuery query = fetchDataHelper.parseQuery("tech, history,,tech", LIKES_FIELD, DESC, 1, 2);
+        assertArrayEquals(new String[]{"history", "tech"}, query.getTags());
+        assertEquals(SortField.LIKES, query.getSortBy());
+        assertEquals(Direction.DESC, query.getDirection());
+        assertEquals(query, fetchDataHelper.parseQuery("history,tech", LIKES_FIELD, DESC, 1, 2));
+        assertNotEquals(query, fetchDataHelper.parseQuery("history,tech", LIKES_FIELD, DESC, 1, null));
+
+        PostsQuery defaults = fetchDataHelper.parseQuery("tech", null, null, 0, null);
+        assertEquals(SortField.ID, defaults.getSortBy());
+        assertEquals(Direction.ASC, defaults.getDirection());
+        assertThrows(InvalidParameterException.class, () -> fetchDataHelper.parseQuery(" , ", ID_FIELD, ASC, 0, null));
+    }
+}
@@ -0,0 +1,34 @@
+package com.assessment.blogposts.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class IndexSorterTests {
+
+    @Test
+    public void sortIndexesByValue() {
+        long[] values = {30, 10, 20, 10, 40};
+        int[] sorted = IndexSorter.sortedIndexes(values.length, (i, j) -> Long.compare(values[i], values[j]));
+        assertArrayEquals(new int[]{1, 3, 2, 0, 4}, sorted);
+    }
+
+    @Test
+    public void sortLikeBoxedStableSort() {
+        Random random = new Random(42);
+        for (int size : new int[]{0, 1, 2, 17, 1000}) {
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) values[i] = random.nextInt(50);
+
+            int[] sorted = IndexSorter.sortedIndexes(size, (i, j) -> Integer.compare(values[i], values[j]));
+            Integer[] expected = new Integer[size];
+            for (int i = 0; i < size; i++) expected[i] = i;
+            Arrays.sort(expected, Comparator.comparingInt(i -> values[i]));
+            assertArrayEquals(Arrays.stream(expected).mapToInt(Integer::intValue).toArray(), sorted);
+        }
+    }
+}
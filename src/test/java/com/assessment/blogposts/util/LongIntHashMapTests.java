@@ -0,0 +1,46 @@
+package com.assessment.blogposts.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LongIntHashMapTests {
+
+    @Test
+    public void putGetAndRemoveLikeHashMap() {
+        LongIntHashMap map = new LongIntHashMap(2);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            //Few keys, so the same keys are put and removed again and again
+            long key = random.nextInt(500) * 1024L;
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 500 * 1024L; key += 1024) {
+            assertEquals(expected.getOrDefault(key, -1), map.get(key, -1));
+        }
+    }
+
+    @Test
+    public void keepTheMinimumKey() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(Long.MIN_VALUE, 7);
+        map.put(0, 1);
+        assertEquals(7, map.get(Long.MIN_VALUE, -1));
+        assertEquals(2, map.size());
+        map.remove(Long.MIN_VALUE);
+        assertEquals(-1, map.get(Long.MIN_VALUE, -1));
+        assertEquals(1, map.get(0, -1));
+    }
+}
@@ -0,0 +1,90 @@
+package com.assessment.blogposts.util;
+
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.model.SortField;
+import com.assessment.blogposts.model.TagPosts;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TagPostsReaderTests {
+
+    TagPostsReader tagPostsReader = new TagPostsReader();
+
+    private TagPosts read(String json) throws IOException {
+        return tagPostsReader.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void readPostsIntoColumns() throws IOException {
+        TagPosts tagPosts = read("{\"posts\":["
+                + "{\"author\":\"Rylee Paul\",\"authorId\":9,\"id\":1,\"likes\":960,\"popularity\":0.13,\"reads\":50361,"
+                + "\"tags\":[\"tech\",\"health\"]},"
+                + "{\"id\":2,\"extra\":{\"nested\":[1,2]},\"likes\":\"12\",\"popularity\":0.5,\"tags\":[\"tech\",null]}"
+                + "],\"total\":2}");
+
+        assertEquals(2, tagPosts.size());
+        Post first = tagPosts.sortedView(SortField.ID, true).get(0);
+        assertEquals(1, first.getId());
+        assertEquals("Rylee Paul", first.getAuthor());
+        assertEquals(9, first.getAuthorId());
+        assertEquals(960, first.getLikes());
+        assertEquals(0.13f, first.getPopularity());
+        assertEquals(50361, first.getReads());
+        assertEquals(Arrays.asList("tech", "health"), first.getTags());
+        Post second = tagPosts.sortedView(SortField.ID, true).get(1);
+        assertEquals(12, second.getLikes());
+        assertEquals(List.of("tech"), second.getTags());
+    }
+
+    @Test
+    public void readPostsOutsideTheHeap() throws IOException {
+        String json = "{\"posts\":[{\"author\":\"Rylee Paul\",\"authorId\":9,\"id\":2,\"likes\":960,"
+                + "\"popularity\":0.13,\"reads\":50361,\"tags\":[\"tech\",\"health\"]},{\"id\":1,\"likes\":5}]}";
+        TagPosts tagPosts = new TagPostsReader(true).read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(tagPosts.isOffHeap());
+        assertEquals(2, tagPosts.size());
+        Post second = tagPosts.sortedView(SortField.ID, true).get(1);
+        assertEquals(2, second.getId());
+        assertEquals("Rylee Paul", second.getAuthor());
+        assertEquals(9, second.getAuthorId());
+        assertEquals(960, second.getLikes());
+        assertEquals(0.13f, second.getPopularity());
+        assertEquals(50361, second.getReads());
+        assertEquals(Arrays.asList("tech", "health"), second.getTags());
+        Post first = tagPosts.sortedView(SortField.LIKES, false).get(1);
+        assertEquals(1, first.getId());
+        assertNull(first.getAuthor());
+        assertEquals(List.of(), first.getTags());
+    }
+
+    @Test
+    public void skipRepeatedPosts() throws IOException {
+        TagPosts tagPosts = read("{\"posts\":[{\"id\":1,\"likes\":1},{\"id\":1,\"likes\":2},{\"id\":2}]}");
+        assertEquals(2, tagPosts.size());
+        assertEquals(1, tagPosts.sortedView(SortField.ID, true).get(0).getLikes());
+    }
+
+    @Test
+    public void readEmptyBodies() throws IOException {
+        assertEquals(0, read("").size());
+        assertEquals(0, read("{}").size());
+        assertEquals(0, read("{\"posts\":null}").size());
+        assertEquals(0, read("{\"posts\":[]}").size());
+    }
+
+    @Test
+    public void failOnTruncatedBody() {
+        assertThrows(IOException.class, () -> read("{\"posts\":[{\"id\":1,\"likes\":1}"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.assessment.blogposts.util;
+
+import com.assessment.blogposts.model.Post;
+import com.assessment.blogposts.model.SortField;
+import com.assessment.blogposts.model.TagPosts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TagPostsSnapshotTests {
+    private static final String TECH = "tech";
+    private static final String HISTORY = "history";
+    private static final long FETCHED_AT = 1_700_000_000_000L;
+
+    TagPostsSnapshot tagPostsSnapshot = new TagPostsSnapshot();
+
+    @TempDir
+    Path directory;
+
+    private Map<String, TagPostsSnapshot.Entry> entries() {
+        TagPosts tech = TagPosts.builder()
+                .add(1, "Rylee Paul", 9, 960, 0.13f, 50361, Arrays.asList(TECH, HISTORY))
+                .add(2, null, 0, 12, 0.5f, 7, null)
+                .build();
+        TagPosts history = TagPosts.builder()
+                .add(1, "Rylee Paul", 9, 960, 0.13f, 50361, Arrays.asList(TECH, HISTORY))
+                .build();
+        Map<String, TagPostsSnapshot.Entry> entries = new LinkedHashMap<>();
+        entries.put(TECH, new TagPostsSnapshot.Entry(tech, FETCHED_AT));
+        entries.put(HISTORY, new TagPostsSnapshot.Entry(history, FETCHED_AT + 1));
+        return entries;
+    }
+
+    @Test
+    public void readWhatWasWritten() throws IOException {
+        Path file = directory.resolve("posts.snapshot");
+        tagPostsSnapshot.write(entries(), file);
+        Map<String, TagPostsSnapshot.Entry> read = tagPostsSnapshot.read(file);
+
+        assertEquals(List.of(TECH, HISTORY), List.copyOf(read.keySet()));
+        assertEquals(FETCHED_AT, read.get(TECH).getFetchedAt());
+        assertEquals(FETCHED_AT + 1, read.get(HISTORY).getFetchedAt());
+        List<Post> tech = read.get(TECH).getPosts().sortedView(SortField.ID, true);
+        assertEquals(2, tech.size());
+        Post first = tech.get(0);
+        assertEquals(1, first.getId());
+        assertEquals("Rylee Paul", first.getAuthor());
+        assertEquals(9, first.getAuthorId());
+        assertEquals(960, first.getLikes());
+        assertEquals(0.13f, first.getPopularity());
+        assertEquals(50361, first.getReads());
+        assertEquals(Arrays.asList(TECH, HISTORY), first.getTags());
+        assertNull(tech.get(1).getAuthor());
+        assertEquals(List.of(), tech.get(1).getTags());
+        assertEquals(1, read.get(HISTORY).getPosts().size());
+    }
+
+    @Test
+    public void replaceTheSnapshotWithoutLeavingTemporaryFiles() throws IOException {
+        Path file = directory.resolve("posts.snapshot");
+        tagPostsSnapshot.write(entries(), file);
+        Map<String, TagPostsSnapshot.Entry> one = new LinkedHashMap<>();
+        one.put(TECH, entries().get(TECH));
+        tagPostsSnapshot.write(one, file);
+
+        assertEquals(List.of(TECH), List.copyOf(tagPostsSnapshot.read(file).keySet()));
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+
+    @Test
+    public void rejectDamagedSnapshots() throws IOException {
+        Path file = directory.resolve("posts.snapshot");
+        tagPostsSnapshot.write(entries(), file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> tagPostsSnapshot.read(file));
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, () -> tagPostsSnapshot.read(file));
+
+        Files.write(file, "{\"posts\":[]}".getBytes());
+        assertThrows(IOException.class, () -> tagPostsSnapshot.read(file));
+    }
+}